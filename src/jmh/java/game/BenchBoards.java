@@ -0,0 +1,43 @@
+package game;
+
+import java.util.Random;
+
+/** Boards for the benchmarks: LEVEL1 or generated square maps. */
+final class BenchBoards {
+
+    private BenchBoards() {}
+
+    /** "LEVEL1" or a side length such as "128". */
+    static Level level(String board, double lampDensity) {
+        if (board.equals("LEVEL1")) return Levels.level1();
+        int n = Integer.parseInt(board);
+        return generate(n, n, lampDensity, 42L);
+    }
+
+    /**
+     * A walled map with scattered walls, doors and OFF lamps. The top-left
+     * corner mirrors LEVEL1 ("@.*" from (1,1)) so click cycles work on every board.
+     */
+    static Level generate(int rows, int cols, double lampDensity, long seed) {
+        Random rnd = new Random(seed);
+        char[] t = new char[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                char ch;
+                double x = rnd.nextDouble();
+                if (r == 0 || c == 0 || r == rows - 1 || c == cols - 1) ch = Tiles.WALL;
+                else if (x < 0.15) ch = Tiles.WALL;
+                else if (x < 0.17) ch = rnd.nextBoolean() ? Tiles.DOOR_LOCKED : Tiles.DOOR_OPEN;
+                else if (x < 0.17 + lampDensity) ch = Tiles.LAMP_OFF;
+                else if (x < 0.175 + lampDensity) ch = Tiles.SWITCH;
+                else ch = Tiles.FLOOR;
+                t[r * cols + c] = ch;
+            }
+        }
+        t[cols + 1] = Tiles.FLOOR;
+        t[cols + 2] = Tiles.FLOOR;
+        t[cols + 3] = Tiles.LAMP_ON;
+        t[(rows - 2) * cols + cols - 2] = Tiles.EXIT;
+        return Level.of("gen-" + rows + "x" + cols, rows, cols, t, 1, 1);
+    }
+}
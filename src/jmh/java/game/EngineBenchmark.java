@@ -0,0 +1,107 @@
+package game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-click engine work. The click cycle includes a headless copy of the
+ * renderer's diff pass; the JavaFX scene-graph updates themselves need a
+ * toolkit and are not measured here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({ "LEVEL1", "32", "128", "512", "1024" })
+    public String board;
+
+    @Param({ "0.01", "0.05" })
+    public double lampDensity;
+
+    private GameEngine engine;
+    private int[] cycle;       // cells to click: step right, lamp off, lamp on, step back
+    private Board doorBoard;   // separate board for the door benchmarks
+    private LightingEngine doorLighting;
+    private char[] shownTile;
+    private boolean[] shownLit;
+
+    @Setup
+    public void setup() {
+        Level level = BenchBoards.level(board, lampDensity);
+        engine = new GameEngine(level);
+        int sr = level.startRow(), sc = level.startCol(), cols = level.cols();
+        int start = sr * cols + sc;
+        cycle = new int[] { start + 1, start + 2, start + 2, start };
+
+        doorBoard = new Board(level);
+        doorLighting = new LightingEngine(doorBoard);
+        doorLighting.rebuild();
+
+        shownTile = new char[level.rows() * cols];
+        shownLit = new boolean[level.rows() * cols];
+        render();
+    }
+
+    /** Door flip on the bitboards only. */
+    @Benchmark
+    public int toggleDoors() {
+        return doorBoard.toggleDoors();
+    }
+
+    /** What a switch click costs: the door flip plus relighting lamps near doors. */
+    @Benchmark
+    public long[] toggleDoorsRelight() {
+        int n = doorBoard.toggleDoors();
+        doorLighting.doorsToggled(doorBoard.doorCells(), n);
+        return doorBoard.lit;
+    }
+
+    @Benchmark
+    public int countLampsOn() {
+        return engine.countLampsOn();
+    }
+
+    /** handleClick -> lighting -> refresh, four clicks per invocation. */
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public int clickCycle() {
+        int cols = engine.cols(), changed = 0;
+        for (int cell : cycle) {
+            if (engine.click(cell / cols, cell % cols) != GameAction.NONE) changed += render();
+        }
+        return changed;
+    }
+
+    // Same scan as GridBoardView.render(); returns the number of cells that would be repainted.
+    private int render() {
+        int rows = engine.rows(), cols = engine.cols(), changed = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int i = r * cols + c;
+                char t = engine.tile(r, c);
+                boolean lit = engine.isLit(r, c);
+                if (shownTile[i] == t && shownLit[i] == lit) continue;
+                shownTile[i] = t;
+                shownLit[i] = lit;
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
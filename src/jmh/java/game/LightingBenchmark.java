@@ -0,0 +1,78 @@
+package game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Lighting with every lamp of the board switched ON. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LightingBenchmark {
+
+    @Param({ "LEVEL1", "32", "128", "512", "1024" })
+    public String board;
+
+    @Param({ "0.01", "0.05" })
+    public double lampDensity;
+
+    @Param({ "shadowcast", "raymarch" })
+    public String fov;
+
+    private Board b;
+    private LightingEngine lighting;
+    private int lampCell;
+
+    @Setup
+    public void setup() {
+        b = new Board(BenchBoards.level(board, lampDensity));
+        for (int cell : b.lampCells()) b.setLampOn(cell, true);
+        lighting = new LightingEngine(b, FieldOfView.byName(fov));
+        lighting.rebuild();
+        lampCell = b.lampCells()[0];
+    }
+
+    /** Full relight, what every click used to cost. */
+    @Benchmark
+    public long[] recomputeLighting() {
+        lighting.rebuild();
+        return b.lit;
+    }
+
+    /** Line-of-sight tests for every tile in one lamp's radius box. */
+    @Benchmark
+    public void blockedByWall(Blackhole bh) {
+        int R = LightingEngine.RADIUS;
+        int lr = lampCell / b.cols, lc = lampCell % b.cols;
+        for (int r = Math.max(0, lr - R); r <= Math.min(b.rows - 1, lr + R); r++) {
+            for (int c = Math.max(0, lc - R); c <= Math.min(b.cols - 1, lc + R); c++) {
+                bh.consume(RayMarchFov.blockedByWall(b, lr, lc, r, c));
+            }
+        }
+    }
+
+    /** One lamp off and on again through the cached masks. */
+    @Benchmark
+    public long[] lampToggle() {
+        int r = lampCell / b.cols, c = lampCell % b.cols;
+        b.setLampOn(lampCell, false);
+        lighting.lampOff(r, c);
+        b.setLampOn(lampCell, true);
+        lighting.lampOn(r, c);
+        return b.lit;
+    }
+}
@@ -0,0 +1,175 @@
+package game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The accepted clicks of one run, in order, for replay with {@link Replay}.
+ * Undo and redo are entries too (action UNDO/REDO, cell 0).
+ *
+ * Entries live in primitive arrays while recording. On disk: magic "EGRL",
+ * u16 version, u16 name length, UTF-8 level name, i64 level fingerprint,
+ * i32 entry count, then per entry u8 action, varint cell (r * cols + c) and
+ * varint move-count delta, and finally u8 escaped. A typical entry is 3 bytes.
+ */
+final class ActionLog {
+
+    static final int MAGIC = 0x4547524C; // "EGRL"
+    static final int VERSION = 1;
+
+    private static final GameAction[] ACTIONS = GameAction.values();
+
+    private final String levelName;
+    private final long fingerprint;
+    private int[] cells = new int[64];
+    private byte[] actions = new byte[64];
+    private int[] moves = new int[64];     // move count after each entry
+    private int size;
+    private boolean escaped;
+
+    ActionLog(Level level) {
+        this(level.name(), fingerprint(level));
+    }
+
+    private ActionLog(String levelName, long fingerprint) {
+        this.levelName = levelName;
+        this.fingerprint = fingerprint;
+    }
+
+    /** Appends one accepted click; {@code escaped} is the engine state after it. */
+    void record(int cell, GameAction action, int moveCount, boolean escaped) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, size * 2);
+            actions = Arrays.copyOf(actions, size * 2);
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        cells[size] = cell;
+        actions[size] = (byte) action.ordinal();
+        moves[size] = moveCount;
+        size++;
+        this.escaped = escaped;
+    }
+
+    void clear() {
+        size = 0;
+        escaped = false;
+    }
+
+    String levelName() { return levelName; }
+    int size() { return size; }
+    int cell(int i) { return cells[i]; }
+    GameAction action(int i) { return ACTIONS[actions[i]]; }
+    int moveCount(int i) { return moves[i]; }
+
+    /** Move count the run claims to finish with. */
+    int finalMoves() { return size == 0 ? 0 : moves[size - 1]; }
+    boolean escaped() { return escaped; }
+
+    long fingerprint() { return fingerprint; }
+
+    // CRC32 of the level's binary record: tiles, start, door groups and lamps.
+    // Levels without lamps of their own hash as in version 2, so older logs still match.
+    static long fingerprint(Level level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            LevelBinary.encodeBase(out, level);
+            if (level.lampCells().length > 0) LevelBinary.encodeLamps(out, level);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        return crc.getValue();
+    }
+
+    void write(Path file) throws IOException {
+        Files.write(file, toBytes());
+    }
+
+    /** The log in its file format. */
+    byte[] toBytes() {
+        byte[] name = levelName.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(24 + name.length + size * 3);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeTo(out, name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private void writeTo(DataOutputStream out, byte[] name) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeLong(fingerprint);
+        out.writeInt(size);
+        int prev = 0;
+        for (int i = 0; i < size; i++) {
+            out.writeByte(actions[i]);
+            writeVarint(out, cells[i]);
+            writeVarint(out, moves[i] - prev);
+            prev = moves[i];
+        }
+        out.writeByte(escaped ? 1 : 0);
+    }
+
+    static ActionLog read(Path file) throws IOException {
+        return read(Files.readAllBytes(file), file.toString());
+    }
+
+    /** Decodes a log in its file format; {@code source} names it in error messages. */
+    static ActionLog read(byte[] bytes, String source) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        try {
+            if (buf.getInt() != MAGIC) throw new IOException(source + ": not an action log");
+            int version = buf.getShort() & 0xFFFF;
+            if (version != VERSION) throw new IOException(source + ": unsupported version " + version);
+            byte[] name = new byte[buf.getShort() & 0xFFFF];
+            buf.get(name);
+            ActionLog log = new ActionLog(new String(name, StandardCharsets.UTF_8), buf.getLong());
+
+            int count = buf.getInt();
+            if (count < 0) throw new IOException(source + ": corrupt log");
+            int moveCount = 0;
+            for (int i = 0; i < count; i++) {
+                int a = buf.get();
+                if (a < 0 || a >= ACTIONS.length) throw new IOException(source + ": bad action " + a);
+                int cell = readVarint(buf);
+                moveCount += readVarint(buf);
+                log.record(cell, ACTIONS[a], moveCount, false);
+            }
+            log.escaped = buf.get() != 0;
+            return log;
+        } catch (BufferUnderflowException e) {
+            throw new IOException(source + ": truncated log");
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarint(ByteBuffer buf) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buf.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package game;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import javafx.scene.image.Image;
+
+/**
+ * Process-wide image cache, and the background threads that load assets.
+ *
+ * Every image is decoded once, on a background loader thread, and shared by
+ * every board built afterwards; Restart never touches a PNG again.
+ * Callers that need an image before it is ready block until it is.
+ */
+final class Assets {
+
+    /** Tile sprites are decoded at this size (px); both renderers scale down from it. */
+    static final int SPRITE_SIZE = 64;
+    static final String WIN_IMAGE = "/images/you_win.png";
+
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "asset-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final ConcurrentHashMap<String, CompletableFuture<Image>> images = new ConcurrentHashMap<>();
+    private static volatile CompletableFuture<SpriteAtlas> atlas;
+
+    private Assets() {}
+
+    /** Starts decoding everything the game screen needs. Safe to call more than once. */
+    static void preload() {
+        atlasAsync();
+        load(WIN_IMAGE, 0);
+    }
+
+    /** Returns the image at the given resource path at its own size, or null if it is missing. */
+    static Image image(String path) {
+        return load(path, 0).join();
+    }
+
+    /** Like {@link #image} but completes when the image is decoded (with null if it is missing). */
+    static CompletableFuture<Image> imageAsync(String path) {
+        return load(path, 0);
+    }
+
+    /** Runs another loading job (sounds, level data) on the asset loader threads. */
+    static <T> CompletableFuture<T> submit(Supplier<T> job) {
+        return CompletableFuture.supplyAsync(job, LOADER);
+    }
+
+    static SpriteAtlas atlas() {
+        return atlasAsync().join();
+    }
+
+    static CompletableFuture<SpriteAtlas> atlasAsync() {
+        CompletableFuture<SpriteAtlas> a = atlas;
+        if (a != null) return a;
+        synchronized (Assets.class) {
+            if (atlas == null) {
+                Sprite[] all = Sprite.values();
+                @SuppressWarnings("unchecked")
+                CompletableFuture<Image>[] parts = (CompletableFuture<Image>[]) new CompletableFuture<?>[all.length];
+                for (Sprite s : all) parts[s.ordinal()] = load(s.path, SPRITE_SIZE);
+
+                atlas = CompletableFuture.allOf(parts).thenApplyAsync(v -> {
+                    Image[] imgs = new Image[all.length];
+                    for (int i = 0; i < all.length; i++) imgs[i] = parts[i].join();
+                    return SpriteAtlas.pack(imgs, SPRITE_SIZE);
+                }, LOADER);
+            }
+            return atlas;
+        }
+    }
+
+    // size 0 keeps the image's own size, otherwise it is fitted into size x size
+    private static CompletableFuture<Image> load(String path, int size) {
+        return images.computeIfAbsent(path + "@" + size, k -> CompletableFuture.supplyAsync(() -> {
+            GameEvents.AssetLoad event = new GameEvents.AssetLoad();
+            event.begin();
+            Image img = decode(path, size);
+            if (event.shouldCommit()) {
+                event.path = path;
+                event.loaded = img != null;
+                if (img != null) {
+                    event.width = (int) img.getWidth();
+                    event.height = (int) img.getHeight();
+                }
+                event.commit();
+            }
+            return img;
+        }, LOADER));
+    }
+
+    private static Image decode(String path, int size) {
+        var url = Assets.class.getResource(path);
+        if (url == null) {
+            System.out.println("Missing " + path);
+            return null;
+        }
+        Image img = (size == 0)
+                ? new Image(url.toExternalForm())
+                : new Image(url.toExternalForm(), size, size, true, true);
+        if (img.isError()) {
+            System.out.println("Failed to load " + path + ": " + img.getException());
+            return null;
+        }
+        return img;
+    }
+}
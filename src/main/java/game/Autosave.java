@@ -0,0 +1,92 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Saves the running game to one file after every action without holding up
+ * the FX thread.
+ *
+ * {@link #changed()} is called on the FX thread. If no write is in flight it
+ * captures a {@link Snapshot} and writes it on a virtual thread; otherwise it
+ * only marks the game dirty, and one fresh snapshot is taken when that write
+ * finishes. A burst of clicks costs one capture and one write, however many
+ * clicks it has. Snapshots replace the file atomically.
+ */
+final class Autosave {
+
+    private final Path file;
+    private final Supplier<Snapshot> capture;  // on the FX thread; null when there is nothing to save
+    private final Executor fx;
+
+    // FX thread only
+    private Thread writer;   // write in flight
+    private boolean dirty;   // changed since that write was captured
+
+    Autosave(Path file, Supplier<Snapshot> capture, Executor fx) {
+        this.file = file;
+        this.capture = capture;
+        this.fx = fx;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /** Call after the game changed. */
+    void changed() {
+        if (writer != null) {
+            dirty = true;
+            return;
+        }
+        Snapshot snapshot = capture.get();
+        if (snapshot == null) return;
+        writer = Thread.ofVirtual().name("autosave").start(() -> {
+            write(snapshot);
+            fx.execute(this::written);
+        });
+    }
+
+    private void written() {
+        writer = null;
+        if (dirty) {
+            dirty = false;
+            changed();
+        }
+    }
+
+    /** On exit: waits for the write in flight, then saves anything newer in this thread. */
+    void flush() {
+        Thread w = writer;
+        if (w != null) {
+            try {
+                w.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        writer = null;
+        if (!dirty) return;
+        dirty = false;
+        Snapshot snapshot = capture.get();
+        if (snapshot != null) write(snapshot);
+    }
+
+    private void write(Snapshot snapshot) {
+        GameEvents.Autosave event = new GameEvents.Autosave();
+        event.begin();
+        try {
+            snapshot.write(file);
+        } catch (IOException | RuntimeException ex) {
+            System.out.println("Could not save " + file + ": " + ex.getMessage());
+            return;
+        }
+        if (event.shouldCommit()) {
+            event.tiles = (long) snapshot.rows * snapshot.cols;
+            event.commit();
+        }
+    }
+}
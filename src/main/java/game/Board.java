@@ -0,0 +1,291 @@
+package game;
+
+import java.util.Arrays;
+
+import static game.Tiles.*;
+
+/**
+ * Compact mutable board: one byte per tile for its type plus long[] bitboards
+ * (bit r * cols + c) for the layers that change during play.
+ *
+ * Lamps and doors keep their on/open state in the bitboards only, so
+ * flipping a door or counting lamps never scans tiles:
+ * <ul>
+ *   <li>{@code lit}      tiles currently lit</li>
+ *   <li>{@code blockers} walls and locked doors (block both movement and light)</li>
+ *   <li>{@code lampsOn}  lamps that are ON</li>
+ *   <li>{@code doors}    every door tile; {@code doorsOpen} the open ones</li>
+ * </ul>
+ * Entity lists (lamps, doors, switches) are built once per level. Switches
+ * and doors carry a dense group index (see {@link Level#group}), and each
+ * group keeps its own door list, so a switch flips its doors in time
+ * proportional to the group size.
+ */
+final class Board implements FieldOfView.Grid {
+
+    // Base tile types; lamp and door state live in the bitboards.
+    private static final byte T_FLOOR = code(FLOOR);
+    private static final byte T_LAMP = code(LAMP_OFF);
+    private static final byte T_DOOR = code(DOOR_LOCKED);
+
+    final int rows, cols, cells, words;
+
+    private final byte[] tiles;
+    final long[] lit;
+    final long[] blockers;
+    final long[] lampsOn;
+    final long[] doors;
+    final long[] doorsOpen;
+
+    private final int[] lampCells;   // ascending cell indices of every lamp
+    private final int[] lampRadii;   // light radius per lamp, lampCells order
+    private final int[] lampColors;  // light colour (0xRRGGBB) per lamp
+    private final int[] doorCells;   // ascending cell indices of every door
+    private final int[] switchCells; // ascending cell indices of every switch
+    private final int[] switchGroups;  // dense group index per switch
+    private final int[][] groupDoors;  // dense group index -> ascending door cells
+    private int lampsOnCount;
+
+    Board(Level level) {
+        rows = level.rows();
+        cols = level.cols();
+        cells = rows * cols;
+        words = (cells + 63) >>> 6;
+        tiles = new byte[cells];
+        lit = new long[words];
+        blockers = new long[words];
+        lampsOn = new long[words];
+        doors = new long[words];
+        doorsOpen = new long[words];
+
+        int lamps = 0, doorCount = 0, switches = 0;
+        for (int i = 0; i < cells; i++) {
+            char t = level.tile(i / cols, i % cols);
+            if (isLamp(t)) lamps++;
+            if (isDoor(t)) doorCount++;
+            if (t == SWITCH) switches++;
+        }
+        lampCells = new int[lamps];
+        lampRadii = new int[lamps];
+        lampColors = new int[lamps];
+        doorCells = new int[doorCount];
+        switchCells = new int[switches];
+        lamps = doorCount = switches = 0;
+
+        for (int i = 0; i < cells; i++) {
+            char t = level.tile(i / cols, i % cols);
+            int w = i >>> 6;
+            long bit = 1L << i;
+            if (isLamp(t)) {
+                tiles[i] = T_LAMP;
+                lampRadii[lamps] = level.lampRadius(i);
+                lampColors[lamps] = level.lampColor(i);
+                lampCells[lamps++] = i;
+                if (t == LAMP_ON) {
+                    lampsOn[w] |= bit;
+                    lampsOnCount++;
+                }
+            } else if (isDoor(t)) {
+                tiles[i] = T_DOOR;
+                doorCells[doorCount++] = i;
+                doors[w] |= bit;
+                if (t == DOOR_OPEN) doorsOpen[w] |= bit;
+                else blockers[w] |= bit;
+            } else {
+                tiles[i] = code(t);
+                if (t == WALL) blockers[w] |= bit;
+                if (t == SWITCH) switchCells[switches++] = i;
+            }
+        }
+
+        // Dense group indices, in ascending group id order.
+        int[] ids = new int[doorCells.length + switchCells.length];
+        int n = 0;
+        for (int i : doorCells) ids[n++] = level.group(i);
+        for (int i : switchCells) ids[n++] = level.group(i);
+        ids = Arrays.stream(ids).distinct().sorted().toArray();
+
+        switchGroups = new int[switchCells.length];
+        for (int k = 0; k < switchCells.length; k++) {
+            switchGroups[k] = Arrays.binarySearch(ids, level.group(switchCells[k]));
+        }
+        int[] sizes = new int[ids.length];
+        int[] doorGroup = new int[doorCells.length];
+        for (int k = 0; k < doorCells.length; k++) {
+            doorGroup[k] = Arrays.binarySearch(ids, level.group(doorCells[k]));
+            sizes[doorGroup[k]]++;
+        }
+        groupDoors = new int[ids.length][];
+        for (int g = 0; g < ids.length; g++) groupDoors[g] = new int[sizes[g]];
+        Arrays.fill(sizes, 0);
+        for (int k = 0; k < doorCells.length; k++) {
+            int g = doorGroup[k];
+            groupDoors[g][sizes[g]++] = doorCells[k];
+        }
+    }
+
+    private Board(Board b) {
+        rows = b.rows;
+        cols = b.cols;
+        cells = b.cells;
+        words = b.words;
+        tiles = b.tiles;            // never written after construction
+        lampCells = b.lampCells;
+        lampRadii = b.lampRadii;
+        lampColors = b.lampColors;
+        doorCells = b.doorCells;
+        switchCells = b.switchCells;
+        switchGroups = b.switchGroups;
+        groupDoors = b.groupDoors;
+        lampsOnCount = b.lampsOnCount;
+        lit = b.lit.clone();
+        blockers = b.blockers.clone();
+        lampsOn = b.lampsOn.clone();
+        doors = b.doors;            // door positions never change
+        doorsOpen = b.doorsOpen.clone();
+    }
+
+    /** Copies the changing layers; tile types and entity lists are shared. */
+    Board copy() {
+        return new Board(this);
+    }
+
+    char tile(int r, int c) {
+        return tile(r * cols + c);
+    }
+
+    char tile(int i) {
+        byte t = tiles[i];
+        if (t == T_LAMP) return isLampOn(i) ? LAMP_ON : LAMP_OFF;
+        if (t == T_DOOR) return bit(doorsOpen, i) ? DOOR_OPEN : DOOR_LOCKED;
+        return symbol(t);
+    }
+
+    boolean isFloor(int i) {
+        return tiles[i] == T_FLOOR;
+    }
+
+    boolean isLit(int i) {
+        return bit(lit, i);
+    }
+
+    void setLit(int i, boolean on) {
+        if (on) lit[i >>> 6] |= 1L << i;
+        else lit[i >>> 6] &= ~(1L << i);
+    }
+
+    /** Walls and locked doors: they block both movement and light. */
+    boolean blocks(int i) {
+        return bit(blockers, i);
+    }
+
+    @Override public int rows() { return rows; }
+    @Override public int cols() { return cols; }
+
+    @Override
+    public boolean blocks(int r, int c) {
+        return bit(blockers, r * cols + c);
+    }
+
+    /** Lit and not blocked, in one word operation. */
+    boolean isLitAndWalkable(int i) {
+        return ((lit[i >>> 6] & ~blockers[i >>> 6]) & (1L << i)) != 0;
+    }
+
+    boolean isLampOn(int i) {
+        return bit(lampsOn, i);
+    }
+
+    void setLampOn(int i, boolean on) {
+        if (isLampOn(i) == on) return;
+        if (on) lampsOn[i >>> 6] |= 1L << i;
+        else lampsOn[i >>> 6] &= ~(1L << i);
+        lampsOnCount += on ? 1 : -1;
+    }
+
+    /** Kept up to date by {@link #setLampOn}, so this is O(1). */
+    int countLampsOn() {
+        return lampsOnCount;
+    }
+
+    /** Opens or locks the door at cell {@code i}. */
+    void setDoorOpen(int i, boolean open) {
+        long bit = 1L << i;
+        if (open) {
+            doorsOpen[i >>> 6] |= bit;
+            blockers[i >>> 6] &= ~bit;
+        } else {
+            doorsOpen[i >>> 6] &= ~bit;
+            blockers[i >>> 6] |= bit;
+        }
+    }
+
+    /** Opens every locked door and locks every open one; returns how many doors flipped. */
+    int toggleDoors() {
+        for (int w = 0; w < words; w++) {
+            doorsOpen[w] ^= doors[w];
+            blockers[w] ^= doors[w];
+        }
+        return doorCells.length;
+    }
+
+    /** Flips the doors of one group; returns how many doors flipped. */
+    int toggleGroup(int g) {
+        int[] group = groupDoors[g];
+        for (int i : group) {
+            long bit = 1L << i;
+            doorsOpen[i >>> 6] ^= bit;
+            blockers[i >>> 6] ^= bit;
+        }
+        return group.length;
+    }
+
+    int countLit() {
+        int n = 0;
+        for (long w : lit) n += Long.bitCount(w);
+        return n;
+    }
+
+    void clearLit() {
+        Arrays.fill(lit, 0L);
+    }
+
+    int[] lampCells() { return lampCells; }
+    int[] doorCells() { return doorCells; }
+    int[] switchCells() { return switchCells; }
+
+    /** Number of switch/door groups on this board. */
+    int groupCount() { return groupDoors.length; }
+
+    /** Ascending door cells of group {@code g}; do not modify. */
+    int[] groupDoors(int g) { return groupDoors[g]; }
+
+    /** Dense group index of the switch at cell {@code i}, or -1 if there is no switch. */
+    int switchGroup(int i) {
+        int k = Arrays.binarySearch(switchCells, i);
+        return (k >= 0) ? switchGroups[k] : -1;
+    }
+
+    /** Light radius of lamp {@code k} (index into {@link #lampCells()}). */
+    int lampRadius(int k) { return lampRadii[k]; }
+
+    /** Light colour (0xRRGGBB) of lamp {@code k}. */
+    int lampColor(int k) { return lampColors[k]; }
+
+    /** Largest light radius of any lamp, 0 without lamps. */
+    int maxLampRadius() {
+        int max = 0;
+        for (int r : lampRadii) max = Math.max(max, r);
+        return max;
+    }
+
+    /** Index of the lamp at cell {@code i} in {@link #lampCells()}, or -1. */
+    int lampIndex(int i) {
+        int k = Arrays.binarySearch(lampCells, i);
+        return (k >= 0) ? k : -1;
+    }
+
+    private static boolean bit(long[] words, int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+}
@@ -0,0 +1,148 @@
+package game;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.input.KeyCode;
+
+/**
+ * Board input collected between animation pulses.
+ *
+ * Cell clicks (already mapped to cells by the renderer) and key presses go
+ * into a small ring of packed longs that is handed to the drain callback
+ * once per pulse, so a burst of input costs one render. A held movement key
+ * repeats at a fixed rate on the pulse rather than at the OS key-repeat rate.
+ * The pulse timer only runs while input is queued or a key is held.
+ */
+final class BoardInput {
+
+    /** Applies queued input; called once per pulse on the FX thread. */
+    interface Drain {
+        void drain(BoardInput input);
+    }
+
+    // Entry kinds (bits 56-63); clicks carry row and column, keys a direction.
+    static final int CLICK = 1, MOVE = 2, INTERACT = 3;
+
+    static final int UP = 0, RIGHT = 1, DOWN = 2, LEFT = 3;
+    static final int[] DR = {-1, 0, 1, 0};
+    static final int[] DC = {0, 1, 0, -1};
+
+    private static final int CAPACITY = 64;                    // power of two; input past this is dropped
+    private static final long REPEAT_DELAY = 250_000_000L;     // first repeat of a held key
+    private static final long REPEAT_INTERVAL = 120_000_000L;  // then one step per interval
+
+    private final long[] queue = new long[CAPACITY];
+    private int head, size;
+
+    private final Drain drain;
+    private final AnimationTimer pump;
+    private boolean pumping;
+
+    private int held = -1;          // direction of the held movement key, -1 if none
+    private KeyCode heldKey;
+    private long nextRepeat;
+    private int facing = DOWN;      // last movement direction; the interact key acts on that side
+
+    BoardInput(Drain drain) {
+        this.drain = drain;
+        this.pump = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse(now);
+            }
+        };
+    }
+
+    /** Queues a click on cell (r, c). */
+    void click(int r, int c) {
+        offer(pack(CLICK, r, c));
+    }
+
+    /** Handles a key press; returns true if the key is a board key. */
+    boolean keyPressed(KeyCode code) {
+        int dir = direction(code);
+        if (dir >= 0) {
+            if (code == heldKey) return true; // OS key repeat; the pulse does its own
+            held = dir;
+            heldKey = code;
+            facing = dir;
+            nextRepeat = System.nanoTime() + REPEAT_DELAY;
+            offer(pack(MOVE, dir, 0));
+            return true;
+        }
+        if (code == KeyCode.E || code == KeyCode.SPACE || code == KeyCode.ENTER) {
+            offer(pack(INTERACT, facing, 0));
+            return true;
+        }
+        return false;
+    }
+
+    /** Handles a key release; returns true if the key is a board key. */
+    boolean keyReleased(KeyCode code) {
+        if (code == heldKey) {
+            held = -1;
+            heldKey = null;
+        }
+        return direction(code) >= 0;
+    }
+
+    /** Drops queued input and any held key, e.g. when the level is reset. */
+    void clear() {
+        head = size = 0;
+        held = -1;
+        heldKey = null;
+    }
+
+    boolean hasNext() {
+        return size > 0;
+    }
+
+    /** Removes and returns the oldest entry; check {@link #hasNext()} first. */
+    long next() {
+        long entry = queue[head];
+        head = (head + 1) & (CAPACITY - 1);
+        size--;
+        return entry;
+    }
+
+    static int kind(long entry) { return (int) (entry >>> 56); }
+    static int row(long entry) { return (int) (entry >>> 28) & 0xFFF_FFFF; }
+    static int col(long entry) { return (int) entry & 0xFFF_FFFF; }
+    /** Direction of a MOVE or INTERACT entry. */
+    static int dir(long entry) { return row(entry); }
+
+    private static long pack(int kind, int a, int b) {
+        return ((long) kind << 56) | ((long) a << 28) | b;
+    }
+
+    private void offer(long entry) {
+        if (size == CAPACITY) return;
+        queue[(head + size) & (CAPACITY - 1)] = entry;
+        size++;
+        if (!pumping) {
+            pumping = true;
+            pump.start();
+        }
+    }
+
+    private void pulse(long now) {
+        if (held >= 0 && now - nextRepeat >= 0) {
+            nextRepeat = now + REPEAT_INTERVAL;
+            offer(pack(MOVE, held, 0));
+        }
+        if (size > 0) drain.drain(this);
+        if (size == 0 && held < 0) {
+            pumping = false;
+            pump.stop();
+        }
+    }
+
+    private static int direction(KeyCode code) {
+        return switch (code) {
+            case UP, W -> UP;
+            case RIGHT, D -> RIGHT;
+            case DOWN, S -> DOWN;
+            case LEFT, A -> LEFT;
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package game;
+
+/** Read-only view of a board that renderers draw from. */
+interface BoardModel {
+
+    int rows();
+
+    int cols();
+
+    char tile(int r, int c);
+
+    boolean isLit(int r, int c);
+
+    /** Plain white light, as 12-bit 0xRGB. */
+    int FULL_LIGHT = 0xFFF;
+
+    /** Colour of the light on a lit tile as 12-bit 0xRGB; {@link #FULL_LIGHT} when not tracked. */
+    default int lightTint(int r, int c) { return FULL_LIGHT; }
+
+    int playerRow();
+
+    int playerCol();
+
+    /** Whether the player can walk to (r, c) over lit tiles right now; false when not tracked. */
+    default boolean isReachable(int r, int c) { return false; }
+}
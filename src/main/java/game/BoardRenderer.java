@@ -0,0 +1,39 @@
+package game;
+
+import javafx.scene.Node;
+
+/** Draws a {@link BoardModel} and reports clicks on its cells. */
+interface BoardRenderer {
+
+    /** Receives clicks on a board cell. */
+    interface CellClickHandler {
+        void cellClicked(int r, int c);
+    }
+
+    /** The node to put in the scene. */
+    Node node();
+
+    /** Sets the sprites to draw; missing sprites draw nothing. */
+    void setSprites(SpriteAtlas atlas);
+
+    /** Prepares for a rows x cols board; the next render draws everything. */
+    void build(int rows, int cols);
+
+    /** Brings the screen in line with the model. */
+    void render(BoardModel model);
+
+    /**
+     * Advances light fades and the player slide started by {@link #render};
+     * called every pulse while it returns true. Must not allocate.
+     */
+    default boolean animate(long now) { return false; }
+
+    /** Outlines the tiles the player can reach from the next {@link #render} on. */
+    default void showReachable(boolean on) {}
+
+    /** Cells drawn by the last {@link #render}, for metrics. */
+    int cellsPainted();
+
+    /** ImageViews this renderer has allocated so far, for metrics. */
+    default long imageViewsAllocated() { return 0; }
+}
@@ -0,0 +1,226 @@
+package game;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.StackPane;
+
+/**
+ * Draws the board onto one Canvas, painting only the tiles inside a camera
+ * viewport that follows the player. The scene graph holds a single node no
+ * matter how large the map is; the mouse wheel scrolls the camera.
+ *
+ * Light changes inside the viewport fade through {@link TileFade}, and the
+ * player and camera slide between tiles; {@link #animate} redraws the
+ * viewport each pulse until both settle. Tiles that scroll into view are
+ * drawn in their final state. Fade levels and light colours wrap around a
+ * viewport-sized table, so memory stays flat however large the board is.
+ */
+final class CanvasBoardView implements BoardRenderer {
+
+    static final int TILE = GridBoardView.TILE;
+    private static final int GAP = 2;                 // same spacing as the GridPane board
+    private static final int PITCH = TILE + GAP;
+    private static final int VIEW_W = 696, VIEW_H = 444;
+    private static final int MARGIN = 3;              // tiles kept between the player and the view edge
+    private static final int FADE_ROWS = VIEW_H / PITCH + 3, FADE_COLS = VIEW_W / PITCH + 3; // > tiles in view
+
+    private final StackPane root;
+    private final Canvas canvas = new Canvas(VIEW_W, VIEW_H);
+    private final GraphicsContext gc = canvas.getGraphicsContext2D();
+    private final CellClickHandler onClick;
+
+    private SpriteAtlas atlas;
+    private final double[] spriteW = new double[Sprite.values().length];  // drawn size per sprite
+    private final double[] spriteH = new double[Sprite.values().length];
+
+    private int rows, cols;
+    private double camX, camY;    // top-left of the viewport in board pixels
+    private BoardModel last;
+    private int painted;          // tiles drawn by the last draw
+    private boolean showReach;
+
+    private final TileFade fade = new TileFade();
+    private final int[] tints = new int[FADE_ROWS * FADE_COLS];  // light colour per fade slot, kept while fading out
+    private final PlayerTween tween = new PlayerTween();
+    private boolean placed;       // false until the first render after build
+    private int vr0, vr1 = -1, vc0, vc1 = -1;  // tile range drawn last time
+
+    CanvasBoardView(CellClickHandler onClick) {
+        this.onClick = onClick;
+        this.root = new StackPane(canvas);
+
+        canvas.setOnMouseClicked(e -> {
+            if (e.getButton() != MouseButton.PRIMARY) return;
+            int c = (int) ((e.getX() + camX) / PITCH);
+            int r = (int) ((e.getY() + camY) / PITCH);
+            if (r >= 0 && r < rows && c >= 0 && c < cols) onClick.cellClicked(r, c);
+        });
+        canvas.setOnScroll(e -> {
+            camX -= e.getDeltaX();
+            camY -= e.getDeltaY();
+            clampCamera();
+            if (last != null) draw(last);
+        });
+    }
+
+    @Override
+    public Node node() {
+        return root;
+    }
+
+    @Override
+    public void setSprites(SpriteAtlas atlas) {
+        this.atlas = atlas;
+        for (Sprite s : Sprite.values()) {
+            int i = s.ordinal();
+            spriteW[i] = spriteH[i] = 0;
+            if (!atlas.has(s) || atlas.width(s) == 0 || atlas.height(s) == 0) continue;
+            double fit = TILE * (s == Sprite.PLAYER ? 0.9 : 0.95);
+            double scale = Math.min(fit / atlas.width(s), fit / atlas.height(s));
+            spriteW[i] = atlas.width(s) * scale;
+            spriteH[i] = atlas.height(s) * scale;
+        }
+    }
+
+    @Override
+    public void build(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        canvas.setWidth(Math.min(VIEW_W, cols * PITCH));
+        canvas.setHeight(Math.min(VIEW_H, rows * PITCH));
+        camX = camY = 0;
+        last = null;
+        fade.reset(FADE_ROWS * FADE_COLS);
+        placed = false;
+        vr1 = vc1 = -1;
+    }
+
+    @Override
+    public void render(BoardModel model) {
+        last = model;
+        if (placed) {
+            tween.moveTo(model.playerRow(), model.playerCol());
+        } else {
+            tween.jump(model.playerRow(), model.playerCol());
+            placed = true;
+        }
+        follow(tween.row(), tween.col());
+        draw(model);
+    }
+
+    @Override
+    public boolean animate(long now) {
+        if (last == null) return false;
+        fade.step(now, null);
+        tween.step(now);
+        follow(tween.row(), tween.col());
+        draw(last);
+        return fade.isFading() || tween.isMoving();
+    }
+
+    // Moves the camera only when the player gets within MARGIN tiles of the view edge.
+    private void follow(double pr, double pc) {
+        double w = canvas.getWidth(), h = canvas.getHeight();
+        double px = pc * PITCH, py = pr * PITCH;
+        double m = MARGIN * PITCH;
+        if (px - camX < m) camX = px - m;
+        else if (px + PITCH - camX > w - m) camX = px + PITCH - w + m;
+        if (py - camY < m) camY = py - m;
+        else if (py + PITCH - camY > h - m) camY = py + PITCH - h + m;
+        clampCamera();
+    }
+
+    private void clampCamera() {
+        double maxX = Math.max(0, cols * PITCH - canvas.getWidth());
+        double maxY = Math.max(0, rows * PITCH - canvas.getHeight());
+        camX = Math.max(0, Math.min(camX, maxX));
+        camY = Math.max(0, Math.min(camY, maxY));
+    }
+
+    @Override
+    public void showReachable(boolean on) {
+        showReach = on;
+    }
+
+    @Override
+    public int cellsPainted() {
+        return painted;
+    }
+
+    private void draw(BoardModel model) {
+        double w = canvas.getWidth(), h = canvas.getHeight();
+        gc.clearRect(0, 0, w, h);
+
+        // visible tile range only
+        int c0 = (int) (camX / PITCH), c1 = Math.min(cols - 1, (int) ((camX + w) / PITCH));
+        int r0 = (int) (camY / PITCH), r1 = Math.min(rows - 1, (int) ((camY + h) / PITCH));
+        painted = Math.max(0, r1 - r0 + 1) * Math.max(0, c1 - c0 + 1);
+        sync(model, r0, r1, c0, c1);
+
+        gc.setStroke(TileStyle.STROKE);
+        gc.setLineWidth(1);
+        for (int r = r0; r <= r1; r++) {
+            double y = r * PITCH - camY;
+            for (int c = c0; c <= c1; c++) {
+                double x = c * PITCH - camX;
+                char t = model.tile(r, c);
+                int i = slot(r, c);
+                int level = fade.level(i);
+
+                gc.setFill(TileStyle.fill(t, level, tints[i]));
+                gc.fillRect(x, y, TILE, TILE);
+                if (showReach && model.isReachable(r, c)) {
+                    gc.setStroke(TileStyle.REACH_STROKE);
+                    gc.strokeRect(x + 0.5, y + 0.5, TILE - 1, TILE - 1);
+                    gc.setStroke(TileStyle.STROKE);
+                } else {
+                    gc.strokeRect(x + 0.5, y + 0.5, TILE - 1, TILE - 1);
+                }
+
+                Sprite s = TileStyle.sprite(t, level);
+                if (s != null) drawSprite(s, x, y);
+            }
+        }
+
+        double x = tween.col() * PITCH - camX, y = tween.row() * PITCH - camY;
+        if (atlas.has(Sprite.PLAYER)) {
+            drawSprite(Sprite.PLAYER, x, y);
+        } else {
+            gc.setFill(TileStyle.PLAYER_FILL);
+            gc.fillRect(x, y, TILE, TILE);
+        }
+    }
+
+    // Fade table index; tiles in view never share one.
+    private static int slot(int r, int c) {
+        return (r % FADE_ROWS) * FADE_COLS + c % FADE_COLS;
+    }
+
+    // Tiles that stayed in view fade to their new light; tiles that just came into view snap to it
+    private void sync(BoardModel model, int r0, int r1, int c0, int c1) {
+        for (int r = r0; r <= r1; r++) {
+            boolean rowWasShown = r >= vr0 && r <= vr1;
+            for (int c = c0; c <= c1; c++) {
+                int i = slot(r, c);
+                boolean lit = model.isLit(r, c);
+                if (lit) tints[i] = model.lightTint(r, c);
+                if (rowWasShown && c >= vc0 && c <= vc1) {
+                    if (fade.isLit(i) != lit) fade.fadeTo(i, lit);
+                } else {
+                    fade.set(i, lit);
+                }
+            }
+        }
+        vr0 = r0; vr1 = r1; vc0 = c0; vc1 = c1;
+    }
+
+    // Draws a sprite centred in the tile, taken by sub-rectangle from the atlas sheet.
+    private void drawSprite(Sprite s, double x, double y) {
+        if (!atlas.has(s)) return;
+        double sw = spriteW[s.ordinal()], sh = spriteH[s.ordinal()];
+        gc.drawImage(atlas.sheet(), atlas.x(s), 0, atlas.width(s), atlas.height(s),
+                x + (TILE - sw) / 2, y + (TILE - sh) / 2, sw, sh);
+    }
+}
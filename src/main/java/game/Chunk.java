@@ -0,0 +1,161 @@
+package game;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+
+import static game.Tiles.*;
+
+/**
+ * One square block of a {@link World}, as read from a {@link WorldFile}.
+ *
+ * Like {@link Board} it keeps one byte per tile for the type and bitsets
+ * (bit = local cell, row-major) for what changes. Lamp and door state is
+ * not stored in the file's chunk: when a chunk is (re)loaded,
+ * {@link #sync} derives it from the world's lamp flips and group phases,
+ * so an evicted chunk loses nothing.
+ */
+final class Chunk {
+
+    private static final byte T_LAMP = code(LAMP_OFF);
+    private static final byte T_LAMP_ON = code(LAMP_ON);
+    private static final byte T_DOOR = code(DOOR_LOCKED);
+    private static final byte T_DOOR_OPEN = code(DOOR_OPEN);
+    private static final byte T_WALL = code(WALL);
+    private static final byte T_SWITCH = code(SWITCH);
+
+    final int cr, cc;        // chunk row/column
+    final int r0, c0;        // top-left tile
+    final int side;
+
+    private final byte[] codes;       // tile codes as in the file; lamps and doors at their initial state
+    private final int[] boundCells;   // ascending local cells of switches/doors outside group 0
+    private final int[] boundGroups;
+
+    final int[] lamps;                // ascending local cells of every lamp
+    final int[] doors;                // ascending local cells of every door
+    private final int[] doorGroups;   // group id per door
+
+    private final long[] lit, blockers, lampsOn, doorsOpen;
+    long lastUsed;                    // World's focus tick, for LRU eviction
+
+    Chunk(int cr, int cc, int side, byte[] codes, int[] boundCells, int[] boundGroups) {
+        this.cr = cr;
+        this.cc = cc;
+        this.r0 = cr * side;
+        this.c0 = cc * side;
+        this.side = side;
+        this.codes = codes;
+        this.boundCells = boundCells;
+        this.boundGroups = boundGroups;
+
+        int words = (side * side + 63) >>> 6;
+        lit = new long[words];
+        blockers = new long[words];
+        lampsOn = new long[words];
+        doorsOpen = new long[words];
+
+        int lampCount = 0, doorCount = 0;
+        for (byte t : codes) {
+            if (t == T_LAMP || t == T_LAMP_ON) lampCount++;
+            if (t == T_DOOR || t == T_DOOR_OPEN) doorCount++;
+        }
+        lamps = new int[lampCount];
+        doors = new int[doorCount];
+        doorGroups = new int[doorCount];
+        lampCount = doorCount = 0;
+        for (int i = 0; i < codes.length; i++) {
+            byte t = codes[i];
+            if (t == T_LAMP || t == T_LAMP_ON) lamps[lampCount++] = i;
+            if (t == T_DOOR || t == T_DOOR_OPEN) {
+                doorGroups[doorCount] = group(i);
+                doors[doorCount++] = i;
+            }
+            if (t == T_WALL) set(blockers, i, true);
+        }
+    }
+
+    /**
+     * Applies the world's state: a lamp is ON if its file state differs from
+     * whether its cell is in {@code lampFlips}, a door is open if its file
+     * state differs from its group's phase.
+     */
+    void sync(Set<Long> lampFlips, BitSet phases, int worldCols) {
+        for (int i : lamps) {
+            boolean flipped = !lampFlips.isEmpty() && lampFlips.contains(cell(i, worldCols));
+            set(lampsOn, i, (codes[i] == T_LAMP_ON) != flipped);
+        }
+        for (int k = 0; k < doors.length; k++) {
+            int i = doors[k];
+            boolean open = (codes[i] == T_DOOR_OPEN) != phases.get(doorGroups[k]);
+            set(doorsOpen, i, open);
+            set(blockers, i, !open);
+        }
+    }
+
+    /** World cell (r * cols + c) of a local cell. */
+    long cell(int local, int worldCols) {
+        return (long) (r0 + local / side) * worldCols + (c0 + local % side);
+    }
+
+    char tile(int local) {
+        byte t = codes[local];
+        if (t == T_LAMP || t == T_LAMP_ON) return isLampOn(local) ? LAMP_ON : LAMP_OFF;
+        if (t == T_DOOR || t == T_DOOR_OPEN) return get(doorsOpen, local) ? DOOR_OPEN : DOOR_LOCKED;
+        return symbol(t);
+    }
+
+    boolean blocks(int local) { return get(blockers, local); }
+    boolean isLit(int local) { return get(lit, local); }
+    void setLit(int local) { set(lit, local, true); }
+    boolean isLampOn(int local) { return get(lampsOn, local); }
+    void setLampOn(int local, boolean on) { set(lampsOn, local, on); }
+
+    void clearLit() {
+        Arrays.fill(lit, 0L);
+    }
+
+    int countLit() {
+        int n = 0;
+        for (long w : lit) n += Long.bitCount(w);
+        return n;
+    }
+
+    boolean hasLampOn() {
+        for (long w : lampsOn) if (w != 0) return true;
+        return false;
+    }
+
+    /** Group id of the switch at a local cell, or -1 if it is not a switch. */
+    int switchGroup(int local) {
+        return (codes[local] == T_SWITCH) ? group(local) : -1;
+    }
+
+    /** Flips this chunk's doors of group {@code g}; returns how many flipped. */
+    int toggleGroup(int g) {
+        int n = 0;
+        for (int k = 0; k < doors.length; k++) {
+            if (doorGroups[k] != g) continue;
+            int i = doors[k];
+            boolean open = !get(doorsOpen, i);
+            set(doorsOpen, i, open);
+            set(blockers, i, !open);
+            n++;
+        }
+        return n;
+    }
+
+    private int group(int local) {
+        int k = Arrays.binarySearch(boundCells, local);
+        return (k >= 0) ? boundGroups[k] : 0;
+    }
+
+    private static boolean get(long[] words, int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] words, int i, boolean on) {
+        if (on) words[i >>> 6] |= 1L << i;
+        else words[i >>> 6] &= ~(1L << i);
+    }
+}
@@ -0,0 +1,95 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Open-addressing hash set of non-negative longs, safe for concurrent {@link #add}.
+ *
+ * Keys live in one primitive array claimed with CAS, so there is no boxing and
+ * no per-entry object. Growing is not thread-safe: callers size the set with
+ * {@link #ensureCapacity} between parallel phases.
+ */
+final class ConcurrentLongSet {
+
+    private static final long EMPTY = -1L;
+
+    private AtomicLongArray table;
+    private int mask;
+    private final AtomicInteger size = new AtomicInteger();
+
+    ConcurrentLongSet(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /** Adds a key (must be >= 0); returns false if it was already present. */
+    boolean add(long key) {
+        AtomicLongArray t = table;
+        int i = hash(key) & mask;
+        while (true) {
+            long cur = t.get(i);
+            if (cur == key) return false;
+            if (cur == EMPTY) {
+                if (t.compareAndSet(i, EMPTY, key)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+                if (t.get(i) == key) return false;
+                continue; // lost the slot to another key, probe on from the same index
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    boolean contains(long key) {
+        int i = hash(key) & mask;
+        while (true) {
+            long cur = table.get(i);
+            if (cur == key) return true;
+            if (cur == EMPTY) return false;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /** Grows the table so that {@code extra} more keys keep the load factor at most 1/2. Not thread-safe. */
+    void ensureCapacity(long extra) {
+        int needed = capacityFor(size.get() + extra);
+        if (needed <= table.length()) return;
+
+        AtomicLongArray old = table;
+        allocate(needed);
+        for (int i = 0; i < old.length(); i++) {
+            long k = old.get(i);
+            if (k == EMPTY) continue;
+            int j = hash(k) & mask;
+            while (table.get(j) != EMPTY) j = (j + 1) & mask;
+            table.set(j, k);
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) table.set(i, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(long expected) {
+        long cap = Long.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        if (cap > (1 << 30)) throw new IllegalStateException("state space too large: " + expected);
+        return (int) cap;
+    }
+
+    // murmur3 finalizer
+    private static int hash(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return (int) k;
+    }
+}
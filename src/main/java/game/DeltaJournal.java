@@ -0,0 +1,64 @@
+package game;
+
+/**
+ * Undo/redo history as a ring buffer of {@code long} deltas.
+ *
+ * Entries before the cursor can be undone, entries after it redone; pushing
+ * a new entry drops the redo tail. The buffer doubles as needed up to
+ * {@link #MAX_ENTRIES} (32 MB); past that the oldest entries are overwritten.
+ * What a delta means is up to the caller ({@link GameEngine}).
+ */
+final class DeltaJournal {
+
+    static final int MAX_ENTRIES = 1 << 22;
+
+    private long[] buf = new long[8];   // small to start with: a server may hold many idle engines
+    private int head;     // index of the oldest entry
+    private int size;     // entries stored, including the redo tail
+    private int cursor;   // entries that can be undone
+
+    void push(long delta) {
+        size = cursor;
+        if (size == buf.length) {
+            if (buf.length < MAX_ENTRIES) {
+                grow();
+            } else {
+                head = (head + 1) & (buf.length - 1); // forget the oldest
+                size--;
+            }
+        }
+        buf[(head + size) & (buf.length - 1)] = delta;
+        size++;
+        cursor = size;
+    }
+
+    boolean canUndo() { return cursor > 0; }
+    boolean canRedo() { return cursor < size; }
+
+    /** Steps back and returns the entry to undo; check {@link #canUndo()} first. */
+    long undo() {
+        cursor--;
+        return buf[(head + cursor) & (buf.length - 1)];
+    }
+
+    /** Steps forward and returns the entry to redo; check {@link #canRedo()} first. */
+    long redo() {
+        long delta = buf[(head + cursor) & (buf.length - 1)];
+        cursor++;
+        return delta;
+    }
+
+    void clear() {
+        head = size = cursor = 0;
+    }
+
+    // Unwraps into a buffer twice the size (lengths stay powers of two).
+    private void grow() {
+        long[] next = new long[buf.length * 2];
+        int first = Math.min(size, buf.length - head);
+        System.arraycopy(buf, head, next, 0, first);
+        System.arraycopy(buf, 0, next, first, size - first);
+        buf = next;
+        head = 0;
+    }
+}
@@ -0,0 +1,234 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first distances over a board's open tiles (lit and not blocked)
+ * from a set of source tiles, kept up to date as tiles open and close.
+ *
+ * {@link #update} takes the tiles that may have changed (the lighting
+ * engine's changed tiles plus flipped doors) and only touches the part of
+ * the field that depends on them:
+ * <ul>
+ *   <li>an opened tile takes its best neighbour's distance plus one and
+ *       relaxes outwards;</li>
+ *   <li>a closed tile invalidates the tiles whose every shortest path ran
+ *       through it (found by walking down the distance levels), and only
+ *       those are recomputed, from their still-valid neighbours.</li>
+ * </ul>
+ * Recomputation pops tiles in distance order (sorted seeds merged with a
+ * FIFO queue), so each tile settles once. Open state is remembered per
+ * tile, so repeated or unchanged candidates cost nothing.
+ */
+final class DistanceField {
+
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final Board board;
+    private final int cols, cells;
+    private final int[] dist;
+    private final long[] open;       // open state the distances are for
+    private final long[] sources;
+    private final long[] affected;   // tiles invalidated by a close, while repairing
+    private int forced = -1;         // counts as open even when it is not (the player's own tile)
+
+    // scratch, grown on demand
+    private int[] closed = new int[64], opened = new int[64];
+    private int[] work = new int[256];
+    private long[] seeds = new long[64];  // (distance << 32 | cell), sorted before a pass
+
+    DistanceField(Board board) {
+        this.board = board;
+        this.cols = board.cols;
+        this.cells = board.cells;
+        this.dist = new int[cells];
+        this.open = new long[board.words];
+        this.sources = new long[board.words];
+        this.affected = new long[board.words];
+    }
+
+    /**
+     * Recomputes everything from {@code sourceCells}. A {@code forced} tile
+     * (-1 for none) counts as open until {@link #unforce()}.
+     */
+    void rebuild(int[] sourceCells, int forced) {
+        this.forced = forced;
+        Arrays.fill(dist, UNREACHED);
+        Arrays.fill(sources, 0L);
+        for (int w = 0; w < open.length; w++) open[w] = board.lit[w] & ~board.blockers[w];
+        if (forced >= 0) set(open, forced, true);
+
+        int n = 0;
+        for (int s : sourceCells) {
+            set(sources, s, true);
+            if (!get(open, s)) continue;
+            dist[s] = 0;
+            n = seed(n, s);
+        }
+        propagate(n);
+    }
+
+    /** Stops treating the forced tile as open; call once it is open by itself. */
+    void unforce() {
+        forced = -1;
+    }
+
+    int forced() {
+        return forced;
+    }
+
+    int dist(int cell) {
+        return dist[cell];
+    }
+
+    /** Re-checks the open state of {@code cells[0..count)} and repairs the distances. */
+    void update(int[] cells, int count) {
+        int nc = 0, no = 0;
+        for (int k = 0; k < count; k++) {
+            int i = cells[k];
+            boolean now = board.isLitAndWalkable(i) || i == forced;
+            if (now == get(open, i)) continue;
+            set(open, i, now);
+            if (now) {
+                if (no == opened.length) opened = Arrays.copyOf(opened, no * 2);
+                opened[no++] = i;
+            } else {
+                if (nc == closed.length) closed = Arrays.copyOf(closed, nc * 2);
+                closed[nc++] = i;
+            }
+        }
+        // closes first, then opens: the opened tiles are still unreached while closes are repaired
+        if (nc > 0) repairClosed(nc);
+        if (no > 0) repairOpened(no);
+    }
+
+    private void repairClosed(int count) {
+        // Walk down from the closed tiles: a tile is invalid when no valid
+        // neighbour sits one step closer. A tile that is re-checked after its
+        // support was invalidated gets checked again from that support.
+        int n = 0;
+        for (int k = 0; k < count; k++) {
+            int c = closed[k];
+            if (dist[c] == UNREACHED) continue;
+            set(affected, c, true);
+            n = push(n, c);
+        }
+        for (int k = 0; k < n; k++) {
+            int v = work[k];
+            int below = dist[v] + 1;
+            for (int j = 0; j < 4; j++) {
+                int w = neighbour(v, j);
+                if (w < 0 || dist[w] != below || get(affected, w) || hasSupport(w)) continue;
+                set(affected, w, true);
+                n = push(n, w);
+            }
+        }
+        for (int k = 0; k < n; k++) dist[work[k]] = UNREACHED;
+
+        // Reseed the invalidated tiles that are still open from their valid neighbours.
+        int s = 0;
+        for (int k = 0; k < n; k++) {
+            int a = work[k];
+            set(affected, a, false);
+            if (!get(open, a)) continue;
+            int d = get(sources, a) ? 0 : bestNeighbour(a);
+            if (d == UNREACHED) continue;
+            dist[a] = d;
+            s = seed(s, a);
+        }
+        propagate(s);
+    }
+
+    private void repairOpened(int count) {
+        int s = 0;
+        for (int k = 0; k < count; k++) {
+            int o = opened[k];
+            int d = get(sources, o) ? 0 : bestNeighbour(o);
+            if (d >= dist[o]) continue;
+            dist[o] = d;
+            s = seed(s, o);
+        }
+        propagate(s);
+    }
+
+    // whether w still has an open, valid neighbour one step closer (or is a source)
+    private boolean hasSupport(int w) {
+        if (get(sources, w) && get(open, w)) return true;
+        int want = dist[w] - 1;
+        for (int j = 0; j < 4; j++) {
+            int u = neighbour(w, j);
+            if (u >= 0 && dist[u] == want && get(open, u) && !get(affected, u)) return true;
+        }
+        return false;
+    }
+
+    // smallest neighbour distance plus one, or UNREACHED
+    private int bestNeighbour(int v) {
+        int best = UNREACHED;
+        for (int j = 0; j < 4; j++) {
+            int u = neighbour(v, j);
+            if (u >= 0 && dist[u] < best) best = dist[u];
+        }
+        return (best == UNREACHED) ? UNREACHED : best + 1;
+    }
+
+    private void propagate(int seedCount) {
+        if (seedCount == 0) return;
+        Arrays.sort(seeds, 0, seedCount);
+        int head = 0, tail = 0, s = 0;
+        while (s < seedCount || head < tail) {
+            int v;
+            if (head == tail || (s < seedCount && (int) (seeds[s] >>> 32) <= dist[work[head]])) {
+                long e = seeds[s++];
+                v = (int) e;
+                if (dist[v] != (int) (e >>> 32)) continue; // improved since it was seeded
+            } else {
+                v = work[head++];
+            }
+            int d = dist[v] + 1;
+            for (int j = 0; j < 4; j++) {
+                int w = neighbour(v, j);
+                if (w < 0 || dist[w] <= d || !get(open, w)) continue;
+                dist[w] = d;
+                if (tail == work.length && head > 0) {
+                    // popped entries are done with; slide the live ones down before growing
+                    System.arraycopy(work, head, work, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                }
+                tail = push(tail, w);
+            }
+        }
+    }
+
+    private int push(int n, int cell) {
+        if (n == work.length) work = Arrays.copyOf(work, n * 2);
+        work[n] = cell;
+        return n + 1;
+    }
+
+    private int seed(int n, int cell) {
+        if (n == seeds.length) seeds = Arrays.copyOf(seeds, n * 2);
+        seeds[n] = ((long) dist[cell] << 32) | cell;
+        return n + 1;
+    }
+
+    // j-th 4-neighbour of cell v, or -1 past the board edge
+    private int neighbour(int v, int j) {
+        switch (j) {
+            case 0: return (v >= cols) ? v - cols : -1;
+            case 1: return (v + cols < cells) ? v + cols : -1;
+            case 2: return (v % cols != 0) ? v - 1 : -1;
+            default: return ((v + 1) % cols != 0) ? v + 1 : -1;
+        }
+    }
+
+    private static boolean get(long[] words, int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] words, int i, boolean on) {
+        if (on) words[i >>> 6] |= 1L << i;
+        else words[i >>> 6] &= ~(1L << i);
+    }
+}
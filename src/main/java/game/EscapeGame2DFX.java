@@ -1,6 +1,8 @@
 package game;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -8,171 +10,177 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.input.MouseButton;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
-import javafx.util.Duration;
-import java.util.ArrayDeque;
-import java.util.Arrays;
-import javafx.scene.media.AudioClip;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
-
-public class EscapeGame2DFX extends Application {
-
-    // --- Level symbols ---
-    // # wall, . floor, @ player, L lamp(off), * lamp(on), 
-	// S switch, D locked door, / open door, E exit
-	// This part can be changed later for more fun.
-    private static final String[] LEVEL1 = {
-    		"@.*###########",
-            "#.....D..L..##",
-            "#.##..##..#.D#",
-            "#...#.L....#.#",
-            "#LSD.#...#.#.E",
-            "#.......#.#..#",
-            "#.##L..#L#D..#",
-            "#D.#.#.....L.#",
-            "##############"
-    };
 
-    private static final char WALL = '#';
-    private static final char FLOOR = '.';
-    private static final char EXIT = 'E';
-    private static final char LAMP_OFF = 'L';
-    private static final char LAMP_ON = '*';
-    private static final char SWITCH = 'S';
-    private static final char DOOR_LOCKED = 'D';
-    private static final char DOOR_OPEN = '/';
-    private static final int MAX_LAMPS_ON = 3;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+public class EscapeGame2DFX extends Application implements GameListener {
 
     // --- Model ---
-    private char[][] grid;
-    private boolean[][] lit;
-    private int pr, pc; // player row/col
-    private int moveCount;
+    private Game engine;
+    private LevelSource levels;   // built-in LEVEL1 unless --level=<file> is given
+    private int levelIndex;
+    private int engineLevel = -1;   // levelIndex the current GameEngine plays
+    private World world;          // --world=<file.lvw> plays a streamed world instead of the levels
+    private ActionLog actionLog;  // accepted clicks of the current run, null for a world; saved on escape to -Dreplay.dir
+    private boolean resumed;      // run continued from a save, so its action log does not start at the beginning
+    private Autosave autosave;    // -Dsave.file, default ~/.escape-game/autosave.egs; empty to turn off
+    private CompletableFuture<Snapshot> saved;  // the save read at startup, null if none
        
  // --- UI (game screen) ---
-    private GridPane board;
-    private Rectangle[][] tiles;
-    private StackPane[][] cellPanes;
+    private BoardRenderer boardView;
     private Label status;
+    private String message;            // status text before the steps-to-exit suffix
+    private boolean showReach = Boolean.getBoolean("reach"); // R or -Dreach=true
+    private Button undoButton, redoButton;
+    private MetricsHud hud;            // F3 or -Dhud=true
+    private final BoardInput input = new BoardInput(this::drainInput); // clicks and keys, applied once per pulse
+    private final AnimationTimer animation = new AnimationTimer() {    // runs while the board has fades or a slide
+        @Override
+        public void handle(long now) {
+            if (!boardView.animate(now)) stop();
+        }
+    };
 
-    private static final int TILE = 38;
+    // Boards with more tiles than this are drawn on a Canvas instead of a GridPane.
+    // -Dboard.renderer=grid|canvas forces one or the other.
+    private static final int CANVAS_THRESHOLD = 64 * 64;
     
  // --- Stage + Scenes ---
     private Stage stage;
     private Scene menuScene;
     private Scene instructionsScene;
     private Scene gameScene;
-    private MediaPlayer bgmPlayer;
 
  // --- Win overlay ---
     private StackPane gameLayer;
     private ImageView winImage;
     
- // --- Player sprite ---
-    private ImageView playerView;
-    private Image playerImage;
-    private int lastPr = -1, lastPc = -1;
-
-    // --- Lamp sprite ---
-    private Image lampOffImage;
-    private Image lampOnImage;
-
- // --- Door sprite ---
-    private Image doorClosedImage;
-    private Image doorOpenImage;
-    
- // --- Switch sprite ---
-    private Image switchImage;
-    
- // --- Exit sprite ---
-    private Image exitImage;
-    
  // --- AUDIO ---
-    private AudioClip lampSfx;       // short sound effect for lamp turn on/off
-    private AudioClip winSfx;        // short sound effect for success
+    private final SoundManager sound = new SoundManager();  // music and effects, loaded in the background
     private boolean musicOn = true;
 
     
     @Override
     public void start(Stage stage) {
+        GameEvents.Startup startup = new GameEvents.Startup();
+        startup.begin();
         this.stage = stage;
+        Assets.preload(); // decode images in the background while the menu is shown
+        sound.load();     // same for sounds; music starts when they are ready
+        openLevels();
+        openSave();
 
-        // Build all screens once
+        // Only the menu is built up front; the other screens on first use
         menuScene = buildMenuScene();
-        instructionsScene = buildInstructionsScene();
-        gameScene = buildGameScene();
-        initAudio(); // start music
-        
+
         stage.setTitle("Escape the Room Within Lights");
         stage.setScene(menuScene);
         stage.show();
+        reportFirstFrame(startup);
     }
-     //  AUDIO SETUP
-       private void initAudio() {
-        // Background music (loops)
-        var bgmUrl = getClass().getResource("/audio/song1.wav");
-        
-        if (bgmUrl != null) {
-            try {
-                Media bgm = new Media(bgmUrl.toExternalForm());
-                bgmPlayer = new MediaPlayer(bgm);
-                bgmPlayer.setVolume(0.25);
-
-             // Loop the music 
-             bgmPlayer.setOnEndOfMedia(() -> {
-            	 bgmPlayer.seek(Duration.ZERO); 
-                 bgmPlayer.play();
-             });
-
-             bgmPlayer.play();
-             
-            } catch (Exception ex) {
-                System.out.println("BGM failed to load: " + ex.getMessage());
-                bgmPlayer = null;
+
+    // -Dstartup.report=true prints the time to the first frame; -Dstartup.exit=true also quits after it
+    private void reportFirstFrame(GameEvents.Startup startup) {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                long sinceLaunch = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                startup.sinceLaunch = sinceLaunch;
+                startup.commit();
+                if (Boolean.getBoolean("startup.report") || Boolean.getBoolean("startup.exit")) {
+                    System.out.println("time-to-first-frame: " + sinceLaunch + " ms");
+                }
+                if (Boolean.getBoolean("startup.exit")) Platform.exit();
             }
-        } else {
-            System.out.println("Missing /audio/song1.wav (place it under src/main/resources/audio/)");
-        }
+        }.start();
+    }
 
-        // Lamp toggle SFX
-        var lampUrl = getClass().getResource("/audio/lamp.wav"); 
-        if (lampUrl != null) {
-            lampSfx = new AudioClip(lampUrl.toExternalForm());
-            lampSfx.setVolume(0.7);
-            
-        } else {
-            System.out.println("Missing /audio/lamp.wav");
+    @Override
+    public void stop() {
+        if (autosave != null) autosave.flush(); // the last few clicks may still be waiting for a write
+    }
+
+    // Reads the save in the background while the menu is shown; Start picks it up
+    private void openSave() {
+        String file = System.getProperty("save.file",
+                Path.of(System.getProperty("user.home"), ".escape-game", "autosave.egs").toString());
+        if (file.isEmpty()) {
+            saved = CompletableFuture.completedFuture(null);
+            return;
         }
+        autosave = new Autosave(Path.of(file), this::snapshot, Platform::runLater);
+        saved = Assets.submit(() -> {
+            Path path = autosave.file();
+            if (!Files.exists(path)) return null;
+            try {
+                return Snapshot.read(path);
+            } catch (IOException | RuntimeException ex) { // a bad save must not keep Start from starting
+                System.out.println("Could not load saved game " + path + ": " + ex.getMessage());
+                return null;
+            }
+        });
+    }
 
-        // Win SFX
-        var winUrl = getClass().getResource("/audio/win.wav"); 
-        if (winUrl != null) {
-            winSfx = new AudioClip(winUrl.toExternalForm());
-            winSfx.setVolume(0.8);
-           
-        } else {
-            System.out.println("Missing /audio/win.wav");
+    // Worlds are not saved: their state lives with the streamed chunks
+    private Snapshot snapshot() {
+        if (!(engine instanceof GameEngine game)) return null;
+        return Snapshot.capture(game, levelIndex, actionLog.fingerprint());
+    }
+
+    private void changed() {
+        if (autosave != null) autosave.changed();
+    }
+
+    private Scene instructionsScene() {
+        if (instructionsScene == null) instructionsScene = buildInstructionsScene();
+        return instructionsScene;
+    }
+
+    private Scene gameScene() {
+        if (gameScene == null) gameScene = buildGameScene();
+        return gameScene;
+    }
+    // --level=<file.lvl|.lvb|.lvp> [--index=N] picks the levels to play; --world=<file.lvw> a world instead
+    private void openLevels() {
+        var named = getParameters().getNamed();
+        String file = named.get("level");
+        levels = Levels.builtIn();
+        String worldFile = named.get("world");
+        if (worldFile != null) {
+            try {
+                world = new World(WorldFile.open(Path.of(worldFile)));
+            } catch (IOException | RuntimeException ex) {
+                System.out.println("Could not open world " + worldFile + ": " + ex.getMessage());
+            }
+        }
+        if (file != null) {
+            try {
+                levels = Levels.open(Path.of(file));
+            } catch (IOException | RuntimeException ex) {
+                System.out.println("Could not load levels from " + file + ": " + ex.getMessage());
+            }
+        }
+        try {
+            levelIndex = Math.floorMod(Integer.parseInt(named.getOrDefault("index", "0")), levels.size());
+        } catch (NumberFormatException ex) {
+            levelIndex = 0;
         }
     }
+
     private void toggleMusic(Button button) {
         musicOn = !musicOn;
-        if (bgmPlayer != null) {
-            if (musicOn) {
-                bgmPlayer.play();
-                button.setText("Music: On");
-            } else {
-                bgmPlayer.pause();
-                button.setText("Music: Off");
-            }
-        } else {
-              button.setText(musicOn ? "Music: On" : "Music: Off");
-        }
+        sound.setEnabled(musicOn); // music and sound effects together
+        button.setText(musicOn ? "Music: On" : "Music: Off");
     }
     
       //  Screen 1: Main Menu
@@ -189,11 +197,20 @@ public class EscapeGame2DFX extends Application {
         exit.setPrefWidth(220);
 
         start.setOnAction(e -> {
-            resetGame();                 // start fresh each time
-            stage.setScene(gameScene);
+            Scene game = gameScene();
+            if (engine != null) {        // back from the menu: carry on where the player left
+                stage.setScene(game);
+                return;
+            }
+            start.setDisable(true);      // first start: continue the saved run once it is read
+            saved.thenAcceptAsync(snapshot -> {
+                start.setDisable(false);
+                resumeGame(snapshot);
+                stage.setScene(game);
+            }, Platform::runLater);
         });
 
-        instructions.setOnAction(e -> stage.setScene(instructionsScene));
+        instructions.setOnAction(e -> stage.setScene(instructionsScene()));
         exit.setOnAction(e -> stage.close());
 
         VBox box = new VBox(14, title, start, instructions, exit);
@@ -212,7 +229,7 @@ public class EscapeGame2DFX extends Application {
         header.setFont(Font.font(22));
 
         Label body = new Label(
-        		 "- Use the mouse to play.\n" +
+        		 "- Use the mouse, or arrow keys/WASD to move and E/Space to use what you face.\n" +
         	     "- You can only move onto neighbour LIT tiles and tiles with door open.\n" +
         	     "- You can not move onto swith or lamp  tiles.\n" +		
         	     "- You can only have at most three lamps and at least one lamp on at the same time.\n" +
@@ -239,10 +256,16 @@ public class EscapeGame2DFX extends Application {
 
     //  Screen 3: Game Screen
     private Scene buildGameScene() {
-        status = new Label("Click a lit neighbor tile to move. Click nearby L/S to interact. Reach Exit to Escape.");
+        message = "Click a lit neighbor tile to move. Click nearby L/S to interact. Reach Exit to Escape.";
+        status = new Label(message);
         Button backToMenu = new Button("Menu");
         Button restart = new Button("Restart");
         Button musicToggle = new Button("Music: On");
+        Button nextLevel = new Button("Next Level");
+        undoButton = new Button("Undo");
+        redoButton = new Button("Redo");
+        nextLevel.setVisible(levels.size() > 1);
+        nextLevel.setManaged(levels.size() > 1);
         
         backToMenu.setOnAction(e -> {
         	if (winImage != null) winImage.setVisible(false);
@@ -252,389 +275,296 @@ public class EscapeGame2DFX extends Application {
         restart.setOnAction(e -> {
             resetGame();
             refresh();
-            status.setText("Restarted.");
+            say("Restarted.");
+            changed();
         });
         
+        nextLevel.setOnAction(e -> {
+            levelIndex = (levelIndex + 1) % levels.size();
+            resetGame();
+            say("Level " + (levelIndex + 1) + ": " + engine.name());
+            changed();
+        });
+
+        undoButton.setOnAction(e -> history(engine.undo(), "Undone."));
+        redoButton.setOnAction(e -> history(engine.redo(), "Redone."));
+
         musicToggle.setOnAction(e -> toggleMusic(musicToggle));
-        HBox top = new HBox(12, backToMenu, restart, musicToggle, status);
+        HBox top = new HBox(12, backToMenu, restart, undoButton, redoButton, nextLevel, musicToggle, status);
         top.setAlignment(Pos.CENTER_LEFT);
         top.setPadding(new Insets(10));
 
-        board = new GridPane();
-        board.setPadding(new Insets(12));
-        board.setHgap(2);
-        board.setVgap(2);
-        board.setAlignment(Pos.CENTER);
-
-        var winUrl = getClass().getResource("/images/you_win.png");
-        if (winUrl != null) {
-            Image img = new Image(winUrl.toExternalForm());
-            winImage = new ImageView(img);
-            winImage.setPreserveRatio(true);
-            winImage.setFitWidth(520);
-            winImage.setVisible(false);
-            winImage.setMouseTransparent(true); 
-        } else {
-            winImage = new ImageView();
-            winImage.setVisible(false);
-            System.out.println("Missing /images/you_win.png");
-        }        
-        StackPane gameLayer = new StackPane(board,winImage);
+        winImage = new ImageView(); // the image is set once decoded
+        winImage.setPreserveRatio(true);
+        winImage.setFitWidth(520);
+        winImage.setVisible(false);
+        winImage.setMouseTransparent(true);
+        Assets.imageAsync(Assets.WIN_IMAGE).thenAcceptAsync(winImage::setImage, Platform::runLater);
+
+        hud = new MetricsHud();
+        StackPane.setAlignment(hud.node(), Pos.TOP_RIGHT);
+        gameLayer = new StackPane(new Pane(), winImage, hud.node()); // board node is set by buildBoard()
         BorderPane root = new BorderPane();
         root.setTop(top);
         root.setCenter(gameLayer);
         
-        resetGame();
+        Scene scene = new Scene(root, 720, 520);
+        // Filters, so arrow keys and space reach the board instead of moving focus or pressing buttons
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F3) hud.toggle();
+            else if (e.getCode() == KeyCode.R) toggleReach();
+            else if (input.keyPressed(e.getCode())) e.consume();
+        });
+        scene.addEventFilter(KeyEvent.KEY_RELEASED, e -> {
+            if (input.keyReleased(e.getCode())) e.consume();
+        });
+        hud.setShown(Boolean.getBoolean("hud"));
+        return scene;
+    }
 
-        return new Scene(root, 720, 520);
+    // Starts the saved run if it is one of these levels, otherwise the current level afresh
+    private void resumeGame(Snapshot snapshot) {
+        boolean fits = world == null && snapshot != null && snapshot.levelIndex < levels.size();
+        int fresh = levelIndex;
+        if (fits) levelIndex = snapshot.levelIndex;
+        try {
+            resetGame();
+            if (fits && ((GameEngine) engine).restore(snapshot)) {
+                resumed = true;
+                winImage.setVisible(engine.isEscaped());
+                refresh();
+                say("Resumed " + engine.name() + " at move " + engine.moveCount() + ".");
+            }
+        } catch (RuntimeException ex) {
+            // a save that reads but doesn't restore is ignored; the next autosave replaces it
+            System.out.println("Could not resume saved game: " + ex);
+            levelIndex = fresh;
+            engine = null;
+            resetGame();
+            say("Saved game could not be resumed; starting afresh.");
+        }
     }
 
     private void resetGame() {
-    	loadLevel(LEVEL1);
-        recomputeLighting();
-        moveCount = 0; 
+        if (world != null) {
+            if (engine == null) {
+                engine = new WorldEngine(world); // reads the chunks around the start
+                engine.setListener(this);
+            } else {
+                engine.reset();
+            }
+        } else {
+            // Level has no equals and a pack decodes a fresh one each time, so compare indices
+            if (!(engine instanceof GameEngine) || engineLevel != levelIndex) {
+                Level level = levels.level(levelIndex); // a pack decodes just this record
+                engine = new GameEngine(level);
+                engineLevel = levelIndex;
+                engine.setListener(this);
+                actionLog = new ActionLog(level);
+            } else {
+                engine.reset();
+                actionLog.clear();
+            }
+        }
 
         if (winImage != null) winImage.setVisible(false);
-        lastPr = -1; lastPc = -1;
+        input.clear();
+        resumed = false;
 
         buildBoard();
         refresh();
     }
-
-    private void loadLevel(String[] level) {
-        int rows = level.length;
-        int cols = level[0].length();
-        grid = new char[rows][cols];
-        lit = new boolean[rows][cols];
-
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                char ch = level[r].charAt(c);
-                if (ch == '@') {
-                    pr = r; pc = c;
-                    grid[r][c] = FLOOR;
-                } else {
-                    grid[r][c] = ch;
-                }
-            }
-        }
-    }
  
     private void buildBoard() {
-        board.getChildren().clear();
-
-        cellPanes = new StackPane[grid.length][grid[0].length];
-        tiles = new Rectangle[grid.length][grid[0].length];
-
-        // Load player, door, switch, lamp, exit images 
-        var purl = getClass().getResource("/images/player.png");
-        if (purl != null) {
-            playerImage = new Image(purl.toExternalForm());
-            playerView = new ImageView(playerImage);
-            playerView.setPreserveRatio(true);
-            playerView.setFitWidth(TILE * 0.9);
-            playerView.setFitHeight(TILE * 0.9);
-        } else {
-            playerView = null; 
-            System.out.println("Missing /images/player.png");
+        GameEvents.BuildBoard event = new GameEvents.BuildBoard();
+        event.begin();
+        long t0 = System.nanoTime();
+        boolean canvas = useCanvas(engine.rows(), engine.cols());
+        if (boardView == null || (boardView instanceof CanvasBoardView) != canvas) {
+            boardView = canvas ? new CanvasBoardView(input::click) : new GridBoardView(input::click);
+            gameLayer.getChildren().set(0, boardView.node());
         }
-
-        var lOff = getClass().getResource("/images/lamp_off.png");
-        var lOn  = getClass().getResource("/images/lamp_on.png");
-        lampOffImage = (lOff == null) ? null : new Image(lOff.toExternalForm());
-        lampOnImage  = (lOn  == null) ? null : new Image(lOn.toExternalForm());
-        
-        var dClosed = getClass().getResource("/images/door_closed.png");
-        var dOpen   = getClass().getResource("/images/door_open.png");
-        doorClosedImage = (dClosed == null) ? null : new Image(dClosed.toExternalForm());
-        doorOpenImage   = (dOpen   == null) ? null : new Image(dOpen.toExternalForm());
-        
-        var sUrl = getClass().getResource("/images/switch.png");
-        switchImage = (sUrl == null) ? null : new Image(sUrl.toExternalForm());
-        
-        var eUrl = getClass().getResource("/images/exit.png");
-        exitImage = (eUrl == null) ? null : new Image(eUrl.toExternalForm());
-        
-        for (int r = 0; r < grid.length; r++) {
-            for (int c = 0; c < grid[0].length; c++) {
-                Rectangle rect = new Rectangle(TILE, TILE);
-                rect.setStroke(Color.gray(0.25));
-
-                final int rr = r, cc = c;
-                rect.setOnMouseClicked(e -> {
-                    if (e.getButton() != MouseButton.PRIMARY) return;
-                    handleClick(rr, cc);
-                });
-
-                StackPane cell = new StackPane(rect);
-                cell.setAlignment(Pos.CENTER);
-
-                tiles[r][c] = rect;
-                cellPanes[r][c] = cell;
-
-                board.add(cell, c, r);
-            }
+        boardView.setSprites(Assets.atlas()); // decoded once per process
+        boardView.build(engine.rows(), engine.cols());
+        boardView.showReachable(showReach);
+
+        long nanos = System.nanoTime() - t0;
+        if (hud.isShown() || event.shouldCommit()) {
+            int nodes = MetricsHud.countNodes(boardView.node());
+            hud.boardBuilt(nanos, nodes);
+            event.rows = engine.rows();
+            event.cols = engine.cols();
+            event.sceneNodes = nodes;
+            event.commit();
         }
     }
+
+    private static boolean useCanvas(int rows, int cols) {
+        String mode = System.getProperty("board.renderer", "");
+        if (mode.equals("canvas")) return true;
+        if (mode.equals("grid")) return false;
+        return (long) rows * cols > CANVAS_THRESHOLD;
+    }
       
-    private void handleClick(int r, int c) {
-        if (isNeighborOrSelf(r, c, pr, pc)) {
-            char t = grid[r][c];
-            if (t == LAMP_OFF) {
-            	// Enforce at most MAX_LAMPS_ON (3, can be changed later) lamps ON
-                if (countLampsOn() >= MAX_LAMPS_ON) {
-                    status.setText("You can only have " + MAX_LAMPS_ON + " lamps ON at a time.");
-                    return;
+    // Applies everything queued since the last pulse, then renders once
+    private void drainInput(BoardInput input) {
+        GameEvents.Click event = new GameEvents.Click();
+        event.begin();
+        long t0 = System.nanoTime();
+        GameAction last = GameAction.NONE;
+        int inputs = 0, r = 0, c = 0;
+        boolean changed = false;
+        while (input.hasNext()) {
+            long entry = input.next();
+            boolean wasEscaped = engine.isEscaped();
+            GameAction action;
+            switch (BoardInput.kind(entry)) {
+                case BoardInput.CLICK -> {
+                    r = BoardInput.row(entry);
+                    c = BoardInput.col(entry);
+                    action = engine.click(r, c);
+                }
+                case BoardInput.MOVE -> {
+                    r = engine.playerRow() + BoardInput.DR[BoardInput.dir(entry)];
+                    c = engine.playerCol() + BoardInput.DC[BoardInput.dir(entry)];
+                    action = engine.move(r, c);
+                }
+                default -> {
+                    r = engine.playerRow() + BoardInput.DR[BoardInput.dir(entry)];
+                    c = engine.playerCol() + BoardInput.DC[BoardInput.dir(entry)];
+                    action = engine.interact(r, c);
                 }
-                grid[r][c] = LAMP_ON;
-                lampSfx.play();
-                recomputeLighting();
-                status.setText("Lamp turned ON.");
-                refresh();
-                return;
-            }
-            if (t == LAMP_ON) {
-                grid[r][c] = LAMP_OFF;
-                lampSfx.play();
-                recomputeLighting();
-                status.setText("Lamp turned OFF.");
-                refresh();
-                return;
             }
-            if (t == SWITCH) {
-                toggleDoors();
-                recomputeLighting();
-                status.setText("Switch toggled doors.");
-                refresh();
-                return;
+            inputs++;
+            last = action;
+            if (action == GameAction.NONE) continue;
+            // Logged as the clicked cell: a key move or interact replays as a click on its target
+            if (actionLog != null) {
+                actionLog.record(r * engine.cols() + c, action, engine.moveCount(), engine.isEscaped());
+                if (engine.isEscaped() && !wasEscaped) saveActionLog(); // once, on the escaping move
             }
+            changed = true;
         }
-     // 2) Otherwise try move if clicked is a 4-neighbor tile
-        if (is4Neighbor(r, c, pr, pc)) {
-            tryMove(r, c);
+        long t1 = System.nanoTime();
+        if (changed) {
             refresh();
+            changed();
+        }
+        long t2 = System.nanoTime();
+
+        if (hud.isShown() || event.shouldCommit()) {
+            int lit = engine.countLit();
+            hud.clicked(last, t1 - t0, t2 - t1, lit, boardView.cellsPainted(), boardView.imageViewsAllocated());
+            event.row = r;
+            event.col = c;
+            event.action = last.name();
+            event.inputs = inputs;
+            event.engineNanos = t1 - t0;
+            event.renderNanos = t2 - t1;
+            event.litTiles = lit;
+            event.commit();
         }
     }
 
-    private void tryMove(int nr, int nc) {
-        if (!inBounds(nr, nc)) return;
-        char t = grid[nr][nc];
-        if (blocksMovement(t)) return;
+    private void history(GameAction action, String message) {
+        if (action == GameAction.NONE) return;
+        if (actionLog != null) actionLog.record(0, action, engine.moveCount(), engine.isEscaped());
+        winImage.setVisible(engine.isEscaped());
+        say(message);
+        refresh();
+        changed();
+    }
 
-        // must be lit to step on
-        if (!lit[nr][nc]) {
-            status.setText("That tile is dark. Turn on a lamp to light a path.");
+    private void saveActionLog() {
+        String dir = System.getProperty("replay.dir");
+        if (dir == null || resumed) return;
+        // Key input is logged as clicks on the target cell; make sure the log really replays to this run
+        Replay.Result check = Replay.run(((GameEngine) engine).level(), actionLog);
+        if (!check.ok()) {
+            System.out.println("Not saving replay: it diverges at entry " + check.divergedAt());
             return;
         }
-        pr = nr; pc = nc;
-        moveCount++;
-        
-        if (grid[pr][pc] == EXIT) {
-        	 if (countLampsOn() > MAX_LAMPS_ON) {
-                 status.setText("Too many lamps ON! You must escape with at most " + MAX_LAMPS_ON + ".");
-                 return;
-             }
-            status.setText("You escaped in " + moveCount + " moves.");
-            if (winSfx != null) winSfx.play();
-            winImage.setVisible(true);
-        } else {
-            status.setText("Moved.");
+        Path file = Path.of(dir, engine.name().replaceAll("[^A-Za-z0-9_-]", "_")
+                + "-" + System.currentTimeMillis() + ".egr");
+        try {
+            actionLog.write(file);
+        } catch (IOException ex) {
+            System.out.println("Could not save replay " + file + ": " + ex.getMessage());
         }
     }
 
-    private void recomputeLighting() {
-        for (int r = 0; r < lit.length; r++) Arrays.fill(lit[r], false);
-
-        final int R = 4; // light radius in tiles (change this to 3/5/6 to different difficulty)
-
-        // For every lamp that is ON, light up tiles within radius R (with wall blocking)
-        for (int lr = 0; lr < grid.length; lr++) {
-            for (int lc = 0; lc < grid[0].length; lc++) {
-
-                if (grid[lr][lc] != LAMP_ON) continue;
-
-                for (int r = lr - R; r <= lr + R; r++) {
-                    for (int c = lc - R; c <= lc + R; c++) {
-                        if (!inBounds(r, c)) continue;
-
-                        int dr = r - lr;
-                        int dc = c - lc;
-
-                        // circle radius check
-                        if (dr * dr + dc * dc > R * R) continue;
-
-                        // walls/locked doors block light (line-of-sight)
-                        if (blockedByWall(lr, lc, r, c)) continue;
-
-                        lit[r][c] = true;
-                    }
-                }
-            }
-        }
-    }
-    
-    private void toggleDoors() {
-        for (int r = 0; r < grid.length; r++) {
-            for (int c = 0; c < grid[0].length; c++) {
-                if (grid[r][c] == DOOR_LOCKED) grid[r][c] = DOOR_OPEN;
-                else if (grid[r][c] == DOOR_OPEN) grid[r][c] = DOOR_LOCKED;
-            }
-        }
+    // --- Engine events ---
+    @Override
+    public void lampToggled(int r, int c, boolean on) {
+        sound.play(SoundManager.Effect.LAMP);
+        say(on ? "Lamp turned ON." : "Lamp turned OFF.");
     }
 
-    private boolean blocksMovement(char t) {
-        return t == WALL || t == DOOR_LOCKED;
+    @Override
+    public void lampLimitReached(int max) {
+        say("You can only have " + max + " lamps ON at a time.");
     }
 
-    private boolean blocksLight(char t) {
-        return t == WALL || t == DOOR_LOCKED;
+    @Override
+    public void doorsToggled(int count) {
+        say("Switch toggled doors.");
     }
- // Returns true if the straight line from (r0,c0) to (r1,c1) passes through a wall/locked door.
-    private boolean blockedByWall(int r0, int c0, int r1, int c1) {
-        int steps = Math.max(Math.abs(r1 - r0), Math.abs(c1 - c0));
-        if (steps == 0) return false;
 
-        for (int i = 1; i <= steps; i++) {
-            double t = i / (double) steps;
-            int r = (int) Math.round(r0 + (r1 - r0) * t);
-            int c = (int) Math.round(c0 + (c1 - c0) * t);
+    @Override
+    public void moved(int r, int c, int moveCount) {
+        say("Moved.");
+    }
 
-            // if we hit a light-blocking tile, the light is blocked
-            if (blocksLight(grid[r][c])) return true;
-        }
-        return false;
+    @Override
+    public void darkTile(int r, int c) {
+        say("That tile is dark. Turn on a lamp to light a path.");
     }
-    private boolean inBounds(int r, int c) {
-        return r >= 0 && r < grid.length && c >= 0 && c < grid[0].length;
+
+    @Override
+    public void escaped(int moveCount) {
+        say("You escaped in " + moveCount + " moves.");
+        sound.play(SoundManager.Effect.WIN);
+        winImage.setVisible(true);
     }
 
-    private boolean is4Neighbor(int r, int c, int pr, int pc) {
-        return (Math.abs(r - pr) + Math.abs(c - pc)) == 1;
+    @Override
+    public void escapeBlocked(int max) {
+        say("Too many lamps ON! You must escape with at most " + max + ".");
     }
 
-    private boolean isNeighborOrSelf(int r, int c, int pr, int pc) {
-        return Math.abs(r - pr) <= 1 && Math.abs(c - pc) <= 1;
-    }  
- // helper to count on lamps
-    private int countLampsOn() {
-        int count = 0;
-        for (int r = 0; r < grid.length; r++) {
-            for (int c = 0; c < grid[0].length; c++) {
-                if (grid[r][c] == LAMP_ON) count++;
-            }
+    private void refresh() {
+        GameEvents.Render event = new GameEvents.Render();
+        event.begin();
+        boardView.render(engine);
+        animation.start();
+        if (event.shouldCommit()) {
+            event.renderer = boardView.getClass().getSimpleName();
+            event.cellsPainted = boardView.cellsPainted();
+            event.sceneNodes = MetricsHud.countNodes(boardView.node());
+            event.imageViews = boardView.imageViewsAllocated();
+            event.commit();
         }
-        return count;
+        undoButton.setDisable(!engine.canUndo());
+        redoButton.setDisable(!engine.canRedo());
+        showStatus();
     }
- // Helper: set/remove a tagged icon (lamp) in a cell
-    private void setCellIcon(int r, int c, Image img, String tag) {
-        cellPanes[r][c].getChildren().removeIf(n -> tag.equals(n.getUserData()));
-        if (img == null) return;
 
-        ImageView iv = new ImageView(img);
-        iv.setMouseTransparent(true); 
-        iv.setPreserveRatio(true);
-        iv.setFitWidth(TILE * 0.95);
-        iv.setFitHeight(TILE * 0.95);
-        iv.setUserData(tag);
-        cellPanes[r][c].getChildren().add(iv);
+    private void toggleReach() {
+        showReach = !showReach;
+        boardView.showReachable(showReach);
+        refresh();
     }
-    
-    private void refresh() {
-        for (int r = 0; r < grid.length; r++) {
-            for (int c = 0; c < grid[0].length; c++) {
-                Rectangle rect = tiles[r][c];
-                char t = grid[r][c];
-
-                // Always clear lamp icons first
-                setCellIcon(r, c, null, "lamp");
-                setCellIcon(r, c, null, "door");
-                setCellIcon(r, c, null, "switch");
-                setCellIcon(r, c, null, "exit");
-
-                // walls always visible (can be changed)
-                if (t == WALL) {
-                    rect.setFill(Color.rgb(75, 75, 90));
-                    continue;
-                }
 
-                if (!lit[r][c]) {
-                    // Keep doors visible even in darkness (can be changed)
-                    if (t == DOOR_LOCKED) {
-                        rect.setFill(Color.rgb(15, 15, 20));     
-                        setCellIcon(r, c, doorClosedImage, "door");
-                    }
-                    else if (t == DOOR_OPEN) {
-                        rect.setFill(Color.rgb(15, 15, 20));     
-                        setCellIcon(r, c, doorOpenImage, "door");
-                    }
-                    // Keep lamps visible even in darkness (can be changed)
-                    else if (t == LAMP_OFF) {
-                        rect.setFill(Color.rgb(245, 215, 120));
-                        setCellIcon(r, c, lampOffImage, "lamp");
-                    }
-                    else if (t == LAMP_ON) {
-                        rect.setFill(Color.rgb(255, 245, 170));
-                        setCellIcon(r, c, lampOnImage, "lamp");
-                    }
-                    else if (t == SWITCH) {
-                        rect.setFill(Color.rgb(15, 15, 20)); // dark background
-                        setCellIcon(r, c, switchImage, "switch");
-                    }
-                    // Everything else stays dark
-                    else {
-                        rect.setFill(Color.rgb(75, 75, 90));
-                    }
-                    continue;
-                }
+    private void say(String text) {
+        message = text;
+        showStatus();
+    }
 
-                // lit colors
-                if (t == EXIT) {
-                    rect.setFill(Color.rgb(220, 220, 235)); // floor background
-                    setCellIcon(r, c, exitImage, "exit");
-                }
-                else if (t == LAMP_OFF) rect.setFill(Color.rgb(245, 215, 120));
-                else if (t == LAMP_ON) rect.setFill(Color.rgb(255, 245, 170));
-                
-                else rect.setFill(Color.rgb(220, 220, 235)); // floor
-
-                // draw lamp icons on lit tiles
-                if (t == LAMP_OFF) setCellIcon(r, c, lampOffImage, "lamp");
-                else if (t == LAMP_ON) setCellIcon(r, c, lampOnImage, "lamp");
-                
-             // draw door icons
-                if (t == DOOR_LOCKED) {
-                    rect.setFill(Color.rgb(220, 220, 235)); // floor behind
-                    setCellIcon(r, c, doorClosedImage, "door");
-                }
-                else if (t == DOOR_OPEN) {
-                    rect.setFill(Color.rgb(220, 220, 235)); // floor behind
-                    setCellIcon(r, c, doorOpenImage, "door");
-                }
-                else {
-                    setCellIcon(r, c, null, "door");
-                }  
-                if (t == SWITCH) {
-                    rect.setFill(Color.rgb(220, 220, 235)); // floor background
-                    setCellIcon(r, c, switchImage, "switch");
-                }
-                else if (t == EXIT) {
-                    rect.setFill(Color.rgb(15, 15, 20)); // dark background
-                    setCellIcon(r, c, exitImage, "exit");
-                }
-            }
-            
-        }    
-        // Draw player sprite on top of the current cell
-        if (playerView != null) {
-            if (lastPr != -1 && lastPc != -1) {
-                cellPanes[lastPr][lastPc].getChildren().remove(playerView);
-            }
-            cellPanes[pr][pc].getChildren().add(playerView);
-            lastPr = pr;
-            lastPc = pc;
-        } else {
-            tiles[pr][pc].setFill(Color.rgb(255, 190, 80));
-        }
+    // The last message, plus the distance to the exit where the game tracks it
+    private void showStatus() {
+        int steps = (engine == null || engine.isEscaped()) ? -1 : engine.stepsToExit();
+        if (steps < 0) status.setText(message);
+        else status.setText(message + "  " + steps + (steps == 1 ? " step" : " steps") + " to exit.");
     }
 
     public static void main(String[] args) {
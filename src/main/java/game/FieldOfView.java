@@ -0,0 +1,40 @@
+package game;
+
+/**
+ * Decides which tiles a lamp lights. Walls and locked doors block light and
+ * are never lit themselves; the lamp's own tile always is.
+ *
+ * The implementation is picked with -Dlight.fov=shadowcast (default) or raymarch.
+ */
+interface FieldOfView {
+
+    /** The tiles light travels over; {@link Board} is one, a chunked {@link World} another. */
+    interface Grid {
+        int rows();
+
+        int cols();
+
+        /** Walls and locked doors; tiles outside the grid block too. */
+        boolean blocks(int r, int c);
+    }
+
+    /** Receives each lit tile; may be called more than once for a tile. */
+    interface TileSink {
+        void lit(int r, int c);
+    }
+
+    /** Reports every tile within {@code radius} of (lr, lc) that the lamp there lights. */
+    void compute(Grid grid, int lr, int lc, int radius, TileSink sink);
+
+    static FieldOfView byName(String name) {
+        switch (name) {
+            case "raymarch": return new RayMarchFov();
+            case "shadowcast": return new ShadowcastFov();
+            default: throw new IllegalArgumentException("unknown field of view: " + name);
+        }
+    }
+
+    static FieldOfView standard() {
+        return byName(System.getProperty("light.fov", "shadowcast"));
+    }
+}
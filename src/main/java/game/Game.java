@@ -0,0 +1,43 @@
+package game;
+
+/**
+ * What the game screen plays: a {@link GameEngine} on one level or a
+ * {@link WorldEngine} on a streamed world. Both follow the same rules and
+ * report to a {@link GameListener}.
+ */
+interface Game extends BoardModel {
+
+    void setListener(GameListener listener);
+
+    /** Puts the game back to its initial state. */
+    void reset();
+
+    String name();
+
+    /** Applies a click on (r, c): interact if possible, otherwise move. */
+    GameAction click(int r, int c);
+
+    /** Toggles the lamp or switch at (r, c) if it is next to the player; never moves. */
+    GameAction interact(int r, int c);
+
+    /** Steps onto (r, c) if it is a lit, passable 4-neighbour; never toggles anything. */
+    GameAction move(int r, int c);
+
+    GameAction undo();
+
+    GameAction redo();
+
+    boolean canUndo();
+
+    boolean canRedo();
+
+    int moveCount();
+
+    boolean isEscaped();
+
+    /** Lit tiles, for metrics. */
+    int countLit();
+
+    /** Fewest moves from the player to an exit over the tiles lit right now; -1 if none or not tracked. */
+    default int stepsToExit() { return -1; }
+}
@@ -0,0 +1,12 @@
+package game;
+
+/** What a click on the board, or an undo/redo, turned into. */
+enum GameAction {
+    NONE,
+    LAMP_ON,
+    LAMP_OFF,
+    SWITCH,
+    MOVE,
+    UNDO,
+    REDO
+}
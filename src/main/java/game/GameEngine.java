@@ -0,0 +1,373 @@
+package game;
+
+import static game.Tiles.*;
+
+/**
+ * The game rules without any JavaFX dependency.
+ *
+ * {@link #click(int, int)} applies one board click to the state and reports
+ * what happened to the {@link GameListener}; the UI is one such listener,
+ * solvers and tests can run the engine with no toolkit at all.
+ *
+ * Every accepted click is journaled as one small delta (lamp cell, door
+ * group, or move with its escape flags), so {@link #undo()} and
+ * {@link #redo()} replay the inverse without snapshots. Lamp and door
+ * deltas go back through the incremental {@link LightingEngine}.
+ *
+ * Distances to the exit and the player's reachable area are kept in two
+ * {@link DistanceField}s, built on the first query and then repaired from
+ * the tiles each action changed, so headless runs that never ask pay nothing.
+ *
+ * An engine made from a {@link LevelTemplate} starts on the template's board
+ * and copies it on its first lamp or switch (moves change nothing on the
+ * board), lighting it through {@link SharedLighting}; many such engines can
+ * share one template.
+ */
+final class GameEngine implements Game {
+
+    static final int MAX_LAMPS_ON = 3;
+
+    private final Level level;
+    private final LevelTemplate template;  // null when the engine builds its own board
+    private GameListener listener = GameListener.NONE;
+
+    // --- Model ---
+    private Board board;
+    private Lighting lighting;
+    private boolean shared;     // board is the template's; copy it before changing it
+    private int pr, pc; // player row/col
+    private int moveCount;
+    private boolean escaped;
+    private final DeltaJournal journal = new DeltaJournal();
+
+    // --- Paths (null until first asked for) ---
+    private DistanceField toExit;   // steps from each open tile to the nearest exit
+    private DistanceField reach;    // finite on the player's lit component, flooded from anchor
+    private int anchor;
+    private int[] root;
+
+    // Journal deltas: kind in bits 62-63, payload below.
+    private static final long D_LAMP = 0L, D_SWITCH = 1L << 62, D_MOVE = 2L << 62;
+    private static final long KIND = 3L << 62;
+    private static final int CELL_BITS = 30;                   // moves need cells < 2^30
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+    private static final long WAS_ESCAPED = 1L << 60, NOW_ESCAPED = 1L << 61;
+
+    GameEngine(Level level) {
+        this(level, null);
+    }
+
+    /** A session engine that shares the template's starting board until it changes it. */
+    GameEngine(LevelTemplate template) {
+        this(template.level(), template);
+    }
+
+    private GameEngine(Level level, LevelTemplate template) {
+        this.level = level;
+        this.template = template;
+        reset();
+    }
+
+    @Override
+    public void setListener(GameListener listener) {
+        this.listener = (listener == null) ? GameListener.NONE : listener;
+    }
+
+    /** Puts the level back to its initial state. */
+    @Override
+    public void reset() {
+        pr = level.startRow();
+        pc = level.startCol();
+        moveCount = 0;
+        escaped = false;
+        journal.clear();
+        toExit = reach = null;
+        if (template != null) {
+            board = template.board();
+            lighting = template.lighting();
+            shared = true;
+            return;
+        }
+        board = new Board(level);
+        lighting = new LightingEngine(board);
+        lighting.rebuild();
+    }
+
+    // Copy-on-write: the first change to a shared board goes to a copy of it
+    private void own() {
+        if (!shared) return;
+        board = board.copy();
+        lighting = new SharedLighting(template, board);
+        shared = false;
+        toExit = reach = null; // they read the template's board; rebuilt on the next query
+    }
+
+    /**
+     * Puts the run back to a saved state with an empty undo history. Returns
+     * false, changing nothing, if the snapshot is of a different level.
+     */
+    boolean restore(Snapshot saved) {
+        if (!saved.levelName.equals(level.name()) || saved.rows != level.rows() || saved.cols != level.cols()
+                || saved.fingerprint != ActionLog.fingerprint(level)) {
+            return false;
+        }
+        reset();
+        own();
+        for (int i : board.lampCells()) board.setLampOn(i, saved.tile(i) == LAMP_ON);
+        for (int i : board.doorCells()) board.setDoorOpen(i, saved.tile(i) == DOOR_OPEN);
+        lighting.rebuild();
+        pr = saved.playerRow;
+        pc = saved.playerCol;
+        moveCount = saved.moveCount;
+        escaped = saved.escaped;
+        return true;
+    }
+
+    // --- Read access ---
+    Level level() { return level; }
+    Board board() { return board; }
+    @Override public int rows() { return board.rows; }
+    @Override public int cols() { return board.cols; }
+    @Override public char tile(int r, int c) { return board.tile(r * board.cols + c); }
+    @Override public boolean isLit(int r, int c) { return board.isLit(r * board.cols + c); }
+    @Override public int lightTint(int r, int c) { return lighting.tint(r * board.cols + c); }
+    @Override public int playerRow() { return pr; }
+    @Override public int playerCol() { return pc; }
+    @Override public int moveCount() { return moveCount; }
+    @Override public boolean isEscaped() { return escaped; }
+    @Override public String name() { return level.name(); }
+    @Override public int countLit() { return board.countLit(); }
+
+    /** Fewest moves from the player to an exit over the tiles lit right now, or -1 if there is no such path. */
+    @Override
+    public int stepsToExit() {
+        ensurePaths();
+        int p = pr * board.cols + pc;
+        if (escaped || (board.tile(p) == EXIT && board.isLitAndWalkable(p))) return 0;
+        int best = DistanceField.UNREACHED;
+        if (pr > 0) best = Math.min(best, toExit.dist(p - board.cols));
+        if (pr < board.rows - 1) best = Math.min(best, toExit.dist(p + board.cols));
+        if (pc > 0) best = Math.min(best, toExit.dist(p - 1));
+        if (pc < board.cols - 1) best = Math.min(best, toExit.dist(p + 1));
+        return (best == DistanceField.UNREACHED) ? -1 : best + 1;
+    }
+
+    /** Whether the player can walk to (r, c) over the tiles lit right now. */
+    @Override
+    public boolean isReachable(int r, int c) {
+        ensurePaths();
+        return reach.dist(r * board.cols + c) != DistanceField.UNREACHED;
+    }
+
+    /** Applies a click on (r, c) and returns what it did. */
+    @Override
+    public GameAction click(int r, int c) {
+        GameAction action = interact(r, c);
+        // A lamp or switch is only ever toggled, even when the toggle was refused
+        if (action != GameAction.NONE || isInteractable(r, c)) return action;
+        // Otherwise try move if clicked is a 4-neighbor tile
+        return move(r, c);
+    }
+
+    private boolean isInteractable(int r, int c) {
+        if (!inBounds(r, c)) return false;
+        char t = board.tile(r * board.cols + c);
+        return isLamp(t) || t == SWITCH;
+    }
+
+    /** Toggles the lamp or switch at (r, c) if it is next to the player; never moves. */
+    @Override
+    public GameAction interact(int r, int c) {
+        if (isNeighborOrSelf(r, c, pr, pc) && inBounds(r, c)) {
+            int i = r * board.cols + c;
+            char t = board.tile(i);
+            if (t == LAMP_OFF) {
+                // Enforce at most MAX_LAMPS_ON lamps ON
+                if (countLampsOn() >= MAX_LAMPS_ON) {
+                    listener.lampLimitReached(MAX_LAMPS_ON);
+                    return GameAction.NONE;
+                }
+                own();
+                board.setLampOn(i, true);
+                lighting.lampOn(r, c);
+                lightChanged();
+                journal.push(D_LAMP | i);
+                listener.lampToggled(r, c, true);
+                return GameAction.LAMP_ON;
+            }
+            if (t == LAMP_ON) {
+                own();
+                board.setLampOn(i, false);
+                lighting.lampOff(r, c);
+                lightChanged();
+                journal.push(D_LAMP | i);
+                listener.lampToggled(r, c, false);
+                return GameAction.LAMP_OFF;
+            }
+            if (t == SWITCH) {
+                own();
+                int g = board.switchGroup(i);
+                int flipped = board.toggleGroup(g);
+                lighting.doorsToggled(board.groupDoors(g), flipped);
+                pathsChanged(board.groupDoors(g), flipped);
+                lightChanged();
+                journal.push(D_SWITCH | g);
+                listener.doorsToggled(flipped);
+                return GameAction.SWITCH;
+            }
+        }
+        return GameAction.NONE;
+    }
+
+    /** Steps onto (r, c) if it is a lit, passable 4-neighbour; never toggles anything. */
+    @Override
+    public GameAction move(int r, int c) {
+        if (is4Neighbor(r, c, pr, pc) && tryMove(r, c)) return GameAction.MOVE;
+        return GameAction.NONE;
+    }
+
+    private boolean tryMove(int nr, int nc) {
+        if (!inBounds(nr, nc)) return false;
+        int i = nr * board.cols + nc;
+        if (board.blocks(i)) return false;
+        // lamps and switches are toggled, never stood on
+        char t = board.tile(i);
+        if (isLamp(t) || t == SWITCH) return false;
+
+        // must be lit (light intensity at least LightingEngine.THRESHOLD) to step on
+        if (!board.isLit(i)) {
+            listener.darkTile(nr, nc);
+            return false;
+        }
+        int from = pr * board.cols + pc;
+        boolean wasEscaped = escaped;
+        pr = nr; pc = nc;
+        moveCount++;
+        reanchor();
+        listener.moved(pr, pc, moveCount);
+
+        if (t == EXIT) {
+            if (countLampsOn() > MAX_LAMPS_ON) {
+                listener.escapeBlocked(MAX_LAMPS_ON);
+            } else {
+                escaped = true;
+                listener.escaped(moveCount);
+            }
+        }
+        journal.push(D_MOVE | from | ((long) i << CELL_BITS)
+                | (wasEscaped ? WAS_ESCAPED : 0) | (escaped ? NOW_ESCAPED : 0));
+        return true;
+    }
+
+    @Override public boolean canUndo() { return journal.canUndo(); }
+    @Override public boolean canRedo() { return journal.canRedo(); }
+
+    /** Reverts the last accepted click without notifying the listener; UNDO, or NONE if there is none. */
+    @Override
+    public GameAction undo() {
+        if (!journal.canUndo()) return GameAction.NONE;
+        apply(journal.undo(), false);
+        return GameAction.UNDO;
+    }
+
+    /** Re-applies the last undone click without notifying the listener; REDO, or NONE if there is none. */
+    @Override
+    public GameAction redo() {
+        if (!journal.canRedo()) return GameAction.NONE;
+        apply(journal.redo(), true);
+        return GameAction.REDO;
+    }
+
+    // Lamp and switch deltas are their own inverse; moves carry both ends.
+    private void apply(long delta, boolean forward) {
+        long kind = delta & KIND;
+        if (kind != D_MOVE) own();
+        if (kind == D_LAMP) {
+            int i = (int) (delta & CELL_MASK);
+            boolean on = !board.isLampOn(i);
+            board.setLampOn(i, on);
+            if (on) lighting.lampOn(i / board.cols, i % board.cols);
+            else lighting.lampOff(i / board.cols, i % board.cols);
+            lightChanged();
+        } else if (kind == D_SWITCH) {
+            int g = (int) (delta & CELL_MASK);
+            int flipped = board.toggleGroup(g);
+            lighting.doorsToggled(board.groupDoors(g), flipped);
+            pathsChanged(board.groupDoors(g), flipped);
+            lightChanged();
+        } else {
+            int cell = (int) ((forward ? delta >>> CELL_BITS : delta) & CELL_MASK);
+            pr = cell / board.cols;
+            pc = cell % board.cols;
+            moveCount += forward ? 1 : -1;
+            escaped = (delta & (forward ? NOW_ESCAPED : WAS_ESCAPED)) != 0;
+            reanchor();
+        }
+    }
+
+    private void ensurePaths() {
+        if (toExit != null) return;
+        int n = 0;
+        for (int i = 0; i < board.cells; i++) if (board.tile(i) == EXIT) n++;
+        int[] exits = new int[n];
+        n = 0;
+        for (int i = 0; i < board.cells; i++) if (board.tile(i) == EXIT) exits[n++] = i;
+
+        toExit = new DistanceField(board);
+        toExit.rebuild(exits, -1);
+        reach = new DistanceField(board);
+        root = new int[1];
+        anchor = -1;
+        reanchor();
+    }
+
+    private void lightChanged() {
+        pathsChanged(lighting.changedTiles(), lighting.changedCount());
+    }
+
+    private void pathsChanged(int[] cells, int count) {
+        if (toExit == null) return;
+        toExit.update(cells, count);
+        reach.update(cells, count);
+        reanchor();
+    }
+
+    // Keeps reach flooded from inside the player's component. Re-floods only when
+    // the player is cut off from the anchor or left an anchor that is not open
+    // (the tile the player stands on counts as open, lit or not).
+    private void reanchor() {
+        if (reach == null) return;
+        int p = pr * board.cols + pc;
+        boolean stale = anchor < 0 || reach.dist(p) == DistanceField.UNREACHED
+                || (p != anchor && !board.isLitAndWalkable(anchor));
+        if (stale) {
+            anchor = root[0] = p;
+            reach.rebuild(root, p);
+        } else if (p != anchor) {
+            reach.unforce();
+        }
+    }
+
+    // Flips every door (one XOR per bitboard word); returns how many flipped.
+    int toggleDoors() {
+        own();
+        return board.toggleDoors();
+    }
+
+    // helper to count on lamps
+    int countLampsOn() {
+        return board.countLampsOn();
+    }
+
+    boolean inBounds(int r, int c) {
+        return r >= 0 && r < board.rows && c >= 0 && c < board.cols;
+    }
+
+    private static boolean is4Neighbor(int r, int c, int pr, int pc) {
+        return (Math.abs(r - pr) + Math.abs(c - pc)) == 1;
+    }
+
+    private static boolean isNeighborOrSelf(int r, int c, int pr, int pc) {
+        return Math.abs(r - pr) <= 1 && Math.abs(c - pc) <= 1;
+    }
+}
@@ -0,0 +1,109 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder events for the click path. They cost next to nothing
+ * unless a recording is running (e.g. {@code -XX:StartFlightRecording=filename=game.jfr});
+ * fields that take work to compute are only filled in when
+ * {@code shouldCommit()} says the event will be kept.
+ */
+final class GameEvents {
+
+    private static final String CATEGORY = "Escape Game";
+
+    private GameEvents() {}
+
+    @Name("game.Click")
+    @Label("Click")
+    @Category(CATEGORY)
+    @Description("Board input from one animation pulse, from the engine updates to the rendered board")
+    static final class Click extends Event {
+        @Label("Row") int row;
+        @Label("Column") int col;
+        @Label("Action") String action;
+        @Label("Inputs") int inputs;
+        @Label("Engine Time") @Timespan long engineNanos;
+        @Label("Render Time") @Timespan long renderNanos;
+        @Label("Lit Tiles") int litTiles;
+    }
+
+    @Name("game.Lighting")
+    @Label("Lighting Update")
+    @Category(CATEGORY)
+    static final class Lighting extends Event {
+        @Label("Operation") String operation;
+        @Label("Lit Tiles") int litTiles;
+    }
+
+    @Name("game.Render")
+    @Label("Board Render")
+    @Category(CATEGORY)
+    static final class Render extends Event {
+        @Label("Renderer") String renderer;
+        @Label("Cells Painted") int cellsPainted;
+        @Label("Scene Nodes") int sceneNodes;
+        @Label("ImageViews Allocated") long imageViews;
+    }
+
+    @Name("game.BuildBoard")
+    @Label("Build Board")
+    @Category(CATEGORY)
+    static final class BuildBoard extends Event {
+        @Label("Rows") int rows;
+        @Label("Columns") int cols;
+        @Label("Scene Nodes") int sceneNodes;
+    }
+
+    @Name("game.Startup")
+    @Label("Startup")
+    @Category(CATEGORY)
+    @Description("From Application.start() to the first frame of the menu")
+    static final class Startup extends Event {
+        @Label("Since Launch") @Timespan(Timespan.MILLISECONDS) long sinceLaunch;
+    }
+
+    @Name("game.ChunkLoad")
+    @Label("World Chunk Load")
+    @Category(CATEGORY)
+    @Description("A world chunk put in place; prefetched chunks were read on the loader thread")
+    static final class ChunkLoad extends Event {
+        @Label("Chunk Row") int chunkRow;
+        @Label("Chunk Column") int chunkCol;
+        @Label("Prefetched") boolean prefetched;
+        @Label("Loaded Chunks") int loadedChunks;
+    }
+
+    @Name("game.Autosave")
+    @Label("Autosave")
+    @Category(CATEGORY)
+    @Description("A snapshot of the run written on the autosave thread")
+    static final class Autosave extends Event {
+        @Label("Tiles") long tiles;
+    }
+
+    @Name("game.Verify")
+    @Label("Score Verification")
+    @Category(CATEGORY)
+    @Description("An action log replayed by the verification server")
+    static final class Verify extends Event {
+        @Label("Level") String level;
+        @Label("Entries") int entries;
+        @Label("Verified") boolean ok;
+    }
+
+    @Name("game.AssetLoad")
+    @Label("Asset Load")
+    @Category(CATEGORY)
+    static final class AssetLoad extends Event {
+        @Label("Path") String path;
+        @Label("Width") int width;
+        @Label("Height") int height;
+        @Label("Loaded") boolean loaded;
+    }
+}
@@ -0,0 +1,27 @@
+package game;
+
+/**
+ * Receives the events produced by {@link GameEngine#click(int, int)}.
+ * All methods default to no-ops so listeners only override what they use.
+ */
+interface GameListener {
+
+    GameListener NONE = new GameListener() {};
+
+    default void lampToggled(int r, int c, boolean on) {}
+
+    /** A lamp click was refused because {@code max} lamps are already ON. */
+    default void lampLimitReached(int max) {}
+
+    default void doorsToggled(int count) {}
+
+    default void moved(int r, int c, int moveCount) {}
+
+    /** A move was refused because the target tile is not lit. */
+    default void darkTile(int r, int c) {}
+
+    default void escaped(int moveCount) {}
+
+    /** The player reached the exit with more than {@code max} lamps ON. */
+    default void escapeBlocked(int max) {}
+}
@@ -0,0 +1,268 @@
+package game;
+
+import javafx.geometry.Bounds;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.StackPane;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * Draws the board as a GridPane of tiles and only touches cells whose
+ * (symbol, light, reachable) state changed since the last {@link #render}.
+ *
+ * Each cell keeps one pooled icon ImageView that is re-pointed at a new
+ * image or hidden instead of being removed and reallocated.
+ * Clicks are handled by one handler on the GridPane, not one per tile.
+ * Light changes fade through {@link TileFade} and the player sprite slides
+ * between cells by translation; both advance in {@link #animate}.
+ */
+final class GridBoardView implements BoardRenderer {
+
+    static final int TILE = 38;
+
+    private final GridPane board = new GridPane();
+    private final CellClickHandler onClick;
+    private SpriteAtlas atlas;
+
+    private int rows, cols;
+    private Rectangle[][] tiles;
+    private StackPane[][] cellPanes;
+    private ImageView[][] icons;     // pooled icon layer, created on first use
+    private ImageView playerView;
+
+    // What each cell currently shows; NONE forces a repaint.
+    private static final char NONE = 0;
+    private char[][] shownTile;
+    private boolean[][] shownLit;
+    private int[][] shownTint;       // light colour, kept while a tile fades out
+    private boolean[][] shownReach;  // outlined as reachable
+    private boolean showReach;
+    private int lastPr = -1, lastPc = -1;
+    private int painted;            // cells repainted by the last render
+    private long imageViews;        // ImageViews allocated so far
+
+    private final TileFade fade = new TileFade();
+    private final TileFade.Sink repaint = this::repaint;
+    private final PlayerTween tween = new PlayerTween();
+    private double pitchX, pitchY;  // cell spacing, measured when a slide starts
+
+    GridBoardView(CellClickHandler onClick) {
+        this.onClick = onClick;
+        board.setPadding(new Insets(12));
+        board.setHgap(2);
+        board.setVgap(2);
+        board.setAlignment(Pos.CENTER);
+        board.setOnMouseClicked(e -> {           // one handler for the whole board
+            if (e.getButton() != MouseButton.PRIMARY || tiles == null || rows == 0) return;
+            int r = cellAt(e.getY(), true), c = cellAt(e.getX(), false);
+            if (r >= 0 && r < rows && c >= 0 && c < cols) onClick.cellClicked(r, c);
+        });
+    }
+
+    // Maps a board coordinate to a row or column from the grid's layout, gaps included.
+    // Layout position and size ignore the children, so a sliding sprite can't shift them.
+    private int cellAt(double pos, boolean vertical) {
+        StackPane first = cellPanes[0][0];
+        double origin = vertical ? first.getLayoutY() : first.getLayoutX();
+        Bounds cell = first.getLayoutBounds();
+        double size = vertical ? cell.getHeight() : cell.getWidth();
+        double pitch = pitch(vertical);
+        double offset = pos - origin;
+        if (offset < 0) return -1;
+        int i = (int) (offset / pitch);
+        return (offset - i * pitch < size) ? i : -1;  // a click in a gap hits nothing
+    }
+
+    private double pitch(boolean vertical) {
+        Bounds cell = cellPanes[0][0].getLayoutBounds();
+        return vertical ? cell.getHeight() + board.getVgap() : cell.getWidth() + board.getHgap();
+    }
+
+    @Override
+    public Node node() {
+        return board;
+    }
+
+    @Override
+    public void setSprites(SpriteAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /** Rebuilds the scene graph for a rows x cols board. */
+    @Override
+    public void build(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        board.getChildren().clear();
+
+        cellPanes = new StackPane[rows][cols];
+        tiles = new Rectangle[rows][cols];
+        icons = new ImageView[rows][cols];
+        shownTile = new char[rows][cols];
+        shownLit = new boolean[rows][cols];
+        shownTint = new int[rows][cols];
+        shownReach = new boolean[rows][cols];
+        lastPr = -1; lastPc = -1;
+        fade.reset(rows * cols);
+
+        Image playerImage = atlas.image(Sprite.PLAYER);
+        if (playerImage != null) {
+            playerView = new ImageView(playerImage);
+            imageViews++;
+            playerView.setMouseTransparent(true);
+            playerView.setPreserveRatio(true);
+            playerView.setFitWidth(TILE * 0.9);
+            playerView.setFitHeight(TILE * 0.9);
+        } else {
+            playerView = null;
+        }
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                Rectangle rect = new Rectangle(TILE, TILE);
+                rect.setStroke(TileStyle.STROKE);
+
+                StackPane cell = new StackPane(rect);
+                cell.setAlignment(Pos.CENTER);
+
+                tiles[r][c] = rect;
+                cellPanes[r][c] = cell;
+
+                board.add(cell, c, r);
+            }
+        }
+    }
+
+    /**
+     * Brings the board in line with the model, repainting changed cells only.
+     * Cells whose light changed start fading and the player starts sliding;
+     * {@link #animate} finishes both.
+     */
+    @Override
+    public void render(BoardModel model) {
+        int pr = model.playerRow(), pc = model.playerCol();
+        boolean moved = pr != lastPr || pc != lastPc;
+        painted = 0;
+        // Without a player sprite the player is a fill colour, so the old cell needs repainting
+        if (playerView == null && moved && lastPr != -1) shownTile[lastPr][lastPc] = NONE;
+
+        for (int r = 0; r < rows; r++) {
+            char[] shownRow = shownTile[r];
+            boolean[] litRow = shownLit[r];
+            int[] tintRow = shownTint[r];
+            boolean[] reachRow = shownReach[r];
+            for (int c = 0; c < cols; c++) {
+                char t = model.tile(r, c);
+                boolean lit = model.isLit(r, c);
+                int tint = lit ? model.lightTint(r, c) : tintRow[c];
+                int i = r * cols + c;
+                if (shownRow[c] != t) {            // new symbol: no fade
+                    shownRow[c] = t;
+                    litRow[c] = lit;
+                    tintRow[c] = tint;
+                    fade.set(i, lit);
+                    paint(r, c, t, fade.level(i), tint);
+                    painted++;
+                } else if (litRow[c] != lit) {     // light changed: fade on the next pulses
+                    litRow[c] = lit;
+                    tintRow[c] = tint;
+                    fade.fadeTo(i, lit);
+                } else if (tintRow[c] != tint) {   // same light, other colour: no fade
+                    tintRow[c] = tint;
+                    paint(r, c, t, fade.level(i), tint);
+                    painted++;
+                }
+                boolean reach = showReach && model.isReachable(r, c);
+                if (reachRow[c] != reach) {
+                    reachRow[c] = reach;
+                    tiles[r][c].setStroke(reach ? TileStyle.REACH_STROKE : TileStyle.STROKE);
+                }
+            }
+        }
+
+        // Draw player sprite on top of the current cell
+        if (playerView == null) {
+            tiles[pr][pc].setFill(TileStyle.PLAYER_FILL);
+        } else if (moved) {
+            if (lastPr != -1) cellPanes[lastPr][lastPc].getChildren().remove(playerView);
+            cellPanes[pr][pc].getChildren().add(playerView);
+            if (lastPr == -1) {
+                tween.jump(pr, pc);
+            } else if (tween.moveTo(pr, pc)) {
+                pitchX = pitch(false);
+                pitchY = pitch(true);
+                cellPanes[pr][pc].toFront(); // slide over the neighbouring cells, not under them
+            }
+            offsetPlayer();
+        }
+        lastPr = pr;
+        lastPc = pc;
+    }
+
+    @Override
+    public void showReachable(boolean on) {
+        showReach = on;
+    }
+
+    @Override
+    public boolean animate(long now) {
+        fade.step(now, repaint);
+        if (tween.isMoving()) {
+            tween.step(now);
+            offsetPlayer();
+        }
+        return fade.isFading() || tween.isMoving();
+    }
+
+    private void repaint(int cell, int level) {
+        int r = cell / cols, c = cell % cols;
+        if (playerView == null && r == lastPr && c == lastPc) return; // keep the player fill
+        paint(r, c, shownTile[r][c], level, shownTint[r][c]);
+    }
+
+    // The sprite lives in the target cell and is translated back towards where it is drawn
+    private void offsetPlayer() {
+        playerView.setTranslateX((tween.col() - tween.targetCol()) * pitchX);
+        playerView.setTranslateY((tween.row() - tween.targetRow()) * pitchY);
+    }
+
+    @Override
+    public int cellsPainted() {
+        return painted;
+    }
+
+    @Override
+    public long imageViewsAllocated() {
+        return imageViews;
+    }
+
+    private void paint(int r, int c, char t, int level, int tint) {
+        tiles[r][c].setFill(TileStyle.fill(t, level, tint));
+
+        Sprite s = TileStyle.sprite(t, level);
+        Image img = (s == null) ? null : atlas.image(s);
+        ImageView iv = icons[r][c];
+        if (img == null) {
+            if (iv != null) iv.setVisible(false);
+            return;
+        }
+        if (iv == null) {
+            iv = new ImageView();
+            imageViews++;
+            iv.setMouseTransparent(true);
+            iv.setPreserveRatio(true);
+            iv.setFitWidth(TILE * 0.95);
+            iv.setFitHeight(TILE * 0.95);
+            icons[r][c] = iv;
+            cellPanes[r][c].getChildren().add(iv);
+            if (playerView != null && r == lastPr && c == lastPc) playerView.toFront();
+        }
+        iv.setImage(img);
+        iv.setVisible(true);
+    }
+}
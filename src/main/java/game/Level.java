@@ -0,0 +1,198 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * An immutable level: the tile symbols with the player start cut out.
+ * Engines copy the tiles they need; a Level itself is safe to share.
+ *
+ * Switches and doors belong to group 0 unless bound to another group;
+ * a switch toggles exactly the doors of its own group. Lamps shine white
+ * with {@link LightingEngine#RADIUS} unless given their own radius and colour.
+ */
+final class Level {
+
+    private final String name;
+    private final int rows, cols;
+    private final char[] tiles;    // row-major, player start stored as FLOOR
+    private final int startRow, startCol;
+    private final int[] boundCells;   // ascending cells of switches/doors outside group 0
+    private final int[] boundGroups;  // their group ids
+    private final int[] lampCells;    // ascending cells of lamps with their own radius/colour
+    private final int[] lampRadii;
+    private final int[] lampColors;   // 0xRRGGBB
+
+    static final int WHITE = 0xFFFFFF;
+    static final int MAX_LAMP_RADIUS = 12;
+
+    private static final int[] NONE = new int[0];
+
+    private Level(String name, int rows, int cols, char[] tiles, int startRow, int startCol,
+                  int[] boundCells, int[] boundGroups, int[] lampCells, int[] lampRadii, int[] lampColors) {
+        this.name = name;
+        this.rows = rows;
+        this.cols = cols;
+        this.tiles = tiles;
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.boundCells = boundCells;
+        this.boundGroups = boundGroups;
+        this.lampCells = lampCells;
+        this.lampRadii = lampRadii;
+        this.lampColors = lampColors;
+    }
+
+    /** Parses a level from rows of symbols; exactly one '@' marks the player start. */
+    static Level parse(String name, String[] lines) {
+        if (lines.length == 0) throw new IllegalArgumentException(name + ": empty level");
+        int rows = lines.length;
+        int cols = lines[0].length();
+        char[] tiles = new char[rows * cols];
+        int sr = -1, sc = -1;
+
+        for (int r = 0; r < rows; r++) {
+            String line = lines[r];
+            if (line.length() != cols) {
+                throw new IllegalArgumentException(name + ": row " + r + " has " + line.length()
+                        + " tiles, expected " + cols);
+            }
+            for (int c = 0; c < cols; c++) {
+                char ch = line.charAt(c);
+                if (!Tiles.isValid(ch)) {
+                    throw new IllegalArgumentException(name + ": unknown symbol '" + ch + "' at " + r + "," + c);
+                }
+                if (ch == Tiles.PLAYER) {
+                    if (sr >= 0) throw new IllegalArgumentException(name + ": more than one '@'");
+                    sr = r; sc = c;
+                    ch = Tiles.FLOOR;
+                }
+                tiles[r * cols + c] = ch;
+            }
+        }
+        if (sr < 0) throw new IllegalArgumentException(name + ": no player start '@'");
+        return new Level(name, rows, cols, tiles, sr, sc, NONE, NONE, NONE, NONE, NONE);
+    }
+
+    /** Builds a level from row-major tiles that no longer contain '@'. */
+    static Level of(String name, int rows, int cols, char[] tiles, int startRow, int startCol) {
+        if (rows <= 0 || cols <= 0 || tiles.length != rows * cols) {
+            throw new IllegalArgumentException(name + ": bad size " + rows + "x" + cols);
+        }
+        if (startRow < 0 || startRow >= rows || startCol < 0 || startCol >= cols) {
+            throw new IllegalArgumentException(name + ": player start outside the board");
+        }
+        for (char t : tiles) {
+            if (t == Tiles.PLAYER || !Tiles.isValid(t)) {
+                throw new IllegalArgumentException(name + ": bad tile '" + t + "'");
+            }
+        }
+        return new Level(name, rows, cols, tiles, startRow, startCol, NONE, NONE, NONE, NONE, NONE);
+    }
+
+    /**
+     * Returns a copy of this level with the given switch/door cells (r * cols + c)
+     * bound to the given groups. Group ids are small non-negative numbers.
+     */
+    Level withGroups(int[] cells, int[] groups) {
+        if (cells.length != groups.length) throw new IllegalArgumentException(name + ": cells/groups mismatch");
+        Integer[] order = new Integer[cells.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(cells[a], cells[b]));
+
+        int n = 0, prev = -1;
+        int[] bc = new int[cells.length], bg = new int[cells.length];
+        for (int k : order) {
+            int cell = cells[k], g = groups[k];
+            if (cell < 0 || cell >= tiles.length) throw new IllegalArgumentException(name + ": group cell outside the board");
+            char t = tiles[cell];
+            if (t != Tiles.SWITCH && !Tiles.isDoor(t)) {
+                throw new IllegalArgumentException(name + ": " + (cell / cols) + "," + (cell % cols)
+                        + " is not a switch or door");
+            }
+            if (g < 0 || g > 0xFFFF) throw new IllegalArgumentException(name + ": bad group " + g);
+            if (cell == prev) throw new IllegalArgumentException(name + ": cell bound twice");
+            prev = cell;
+            if (g == 0) continue;
+            bc[n] = cell;
+            bg[n++] = g;
+        }
+        return new Level(name, rows, cols, tiles, startRow, startCol,
+                Arrays.copyOf(bc, n), Arrays.copyOf(bg, n), lampCells, lampRadii, lampColors);
+    }
+
+    /**
+     * Returns a copy of this level where the lamps at the given cells have
+     * their own light radius (1 to {@link #MAX_LAMP_RADIUS}) and colour (0xRRGGBB).
+     */
+    Level withLamps(int[] cells, int[] radii, int[] colors) {
+        if (cells.length != radii.length || cells.length != colors.length) {
+            throw new IllegalArgumentException(name + ": cells/radii/colours mismatch");
+        }
+        Integer[] order = new Integer[cells.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(cells[a], cells[b]));
+
+        int n = 0, prev = -1;
+        int[] lc = new int[cells.length], lr = new int[cells.length], lk = new int[cells.length];
+        for (int k : order) {
+            int cell = cells[k], radius = radii[k], color = colors[k];
+            if (cell < 0 || cell >= tiles.length) throw new IllegalArgumentException(name + ": lamp cell outside the board");
+            if (!Tiles.isLamp(tiles[cell])) {
+                throw new IllegalArgumentException(name + ": " + (cell / cols) + "," + (cell % cols) + " is not a lamp");
+            }
+            if (radius < 1 || radius > MAX_LAMP_RADIUS) throw new IllegalArgumentException(name + ": bad lamp radius " + radius);
+            if ((color & ~WHITE) != 0) throw new IllegalArgumentException(name + ": bad lamp colour " + color);
+            if (cell == prev) throw new IllegalArgumentException(name + ": lamp set twice");
+            prev = cell;
+            if (radius == LightingEngine.RADIUS && color == WHITE) continue;
+            lc[n] = cell;
+            lr[n] = radius;
+            lk[n++] = color;
+        }
+        return new Level(name, rows, cols, tiles, startRow, startCol, boundCells, boundGroups,
+                Arrays.copyOf(lc, n), Arrays.copyOf(lr, n), Arrays.copyOf(lk, n));
+    }
+
+    String name() { return name; }
+    int rows() { return rows; }
+    int cols() { return cols; }
+    int startRow() { return startRow; }
+    int startCol() { return startCol; }
+
+    char tile(int r, int c) {
+        return tiles[r * cols + c];
+    }
+
+    /** Group of the switch or door at cell r * cols + c (0 unless bound). */
+    int group(int cell) {
+        int k = Arrays.binarySearch(boundCells, cell);
+        return (k >= 0) ? boundGroups[k] : 0;
+    }
+
+    /** Cells bound to a group other than 0, ascending; do not modify. */
+    int[] boundCells() { return boundCells; }
+
+    /** Light radius of the lamp at cell r * cols + c. */
+    int lampRadius(int cell) {
+        int k = Arrays.binarySearch(lampCells, cell);
+        return (k >= 0) ? lampRadii[k] : LightingEngine.RADIUS;
+    }
+
+    /** Light colour (0xRRGGBB) of the lamp at cell r * cols + c. */
+    int lampColor(int cell) {
+        int k = Arrays.binarySearch(lampCells, cell);
+        return (k >= 0) ? lampColors[k] : WHITE;
+    }
+
+    /** Lamps with their own radius or colour, ascending; do not modify. */
+    int[] lampCells() { return lampCells; }
+
+    /** Returns a fresh mutable grid for an engine to play on. */
+    char[][] toGrid() {
+        char[][] grid = new char[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(tiles, r * cols, grid[r], 0, cols);
+        }
+        return grid;
+    }
+}
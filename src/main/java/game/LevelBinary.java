@@ -0,0 +1,142 @@
+package game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static game.Tiles.*;
+
+/**
+ * The compact binary level form.
+ *
+ * A level record is: u16 name length, UTF-8 name, i32 rows, i32 cols,
+ * i32 start row, i32 start col, then the tiles as 4-bit codes, two per byte
+ * (low nibble first). Version 2 appends the door groups: i32 count, then
+ * count pairs of (i32 cell, u16 group). Version 3 appends the lamps with
+ * their own light: i32 count, then (i32 cell, u8 radius, u8 red, u8 green,
+ * u8 blue) each. A .lvb file is the magic "EGLV", a u16 version and one
+ * record; {@link LevelPack} stores many records behind an offset index.
+ * Older versions are still read.
+ */
+final class LevelBinary {
+
+    static final int MAGIC = 0x45474C56; // "EGLV"
+    static final int VERSION = 3;
+
+    private LevelBinary() {}
+
+    static Level read(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buf.getInt(0) != MAGIC) throw new IOException(file + ": not a binary level");
+        int version = buf.getShort(4) & 0xFFFF;
+        if (version < 1 || version > VERSION) throw new IOException(file + ": unsupported version " + version);
+        return decode(buf, 6, version);
+    }
+
+    static void write(Path file, Level level) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        encode(out, level);
+        out.flush();
+        Files.write(file, bytes.toByteArray());
+    }
+
+    static void encode(DataOutputStream out, Level level) throws IOException {
+        encodeBase(out, level);
+        encodeLamps(out, level);
+    }
+
+    /** The record as version 2 had it: everything but the lamps. */
+    static void encodeBase(DataOutputStream out, Level level) throws IOException {
+        byte[] name = level.name().getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) throw new IOException("level name too long");
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeInt(level.rows());
+        out.writeInt(level.cols());
+        out.writeInt(level.startRow());
+        out.writeInt(level.startCol());
+
+        int n = level.rows() * level.cols();
+        int cols = level.cols();
+        for (int i = 0; i < n; i += 2) {
+            int lo = code(level.tile(i / cols, i % cols));
+            int hi = (i + 1 < n) ? code(level.tile((i + 1) / cols, (i + 1) % cols)) : 0;
+            out.writeByte(lo | (hi << 4));
+        }
+
+        int[] bound = level.boundCells();
+        out.writeInt(bound.length);
+        for (int cell : bound) {
+            out.writeInt(cell);
+            out.writeShort(level.group(cell));
+        }
+    }
+
+    static void encodeLamps(DataOutputStream out, Level level) throws IOException {
+        int[] lamps = level.lampCells();
+        out.writeInt(lamps.length);
+        for (int cell : lamps) {
+            out.writeInt(cell);
+            out.writeByte(level.lampRadius(cell));
+            int color = level.lampColor(cell);
+            out.writeByte(color >>> 16);
+            out.writeByte(color >>> 8);
+            out.writeByte(color);
+        }
+    }
+
+    /** Decodes the record at {@code offset} using absolute reads only, so a shared buffer stays usable. */
+    static Level decode(ByteBuffer buf, int offset, int version) {
+        int p = offset;
+        int nameLen = buf.getShort(p) & 0xFFFF;
+        p += 2;
+        byte[] name = new byte[nameLen];
+        buf.get(p, name);
+        p += nameLen;
+        int rows = buf.getInt(p);
+        int cols = buf.getInt(p + 4);
+        int sr = buf.getInt(p + 8);
+        int sc = buf.getInt(p + 12);
+        p += 16;
+
+        int n = rows * cols;
+        char[] tiles = new char[n];
+        for (int i = 0; i < n; i += 2) {
+            int b = buf.get(p++);
+            tiles[i] = symbol(b & 0xF);
+            if (i + 1 < n) tiles[i + 1] = symbol((b >>> 4) & 0xF);
+        }
+        Level level = Level.of(new String(name, StandardCharsets.UTF_8), rows, cols, tiles, sr, sc);
+        if (version < 2) return level;
+
+        int bound = buf.getInt(p);
+        p += 4;
+        if (bound > 0) {
+            int[] cells = new int[bound], groups = new int[bound];
+            for (int i = 0; i < bound; i++, p += 6) {
+                cells[i] = buf.getInt(p);
+                groups[i] = buf.getShort(p + 4) & 0xFFFF;
+            }
+            level = level.withGroups(cells, groups);
+        }
+        if (version < 3) return level;
+
+        int lamps = buf.getInt(p);
+        p += 4;
+        if (lamps == 0) return level;
+        int[] cells = new int[lamps], radii = new int[lamps], colors = new int[lamps];
+        for (int i = 0; i < lamps; i++, p += 8) {
+            cells[i] = buf.getInt(p);
+            radii[i] = buf.get(p + 4) & 0xFF;
+            colors[i] = (buf.get(p + 5) & 0xFF) << 16 | (buf.get(p + 6) & 0xFF) << 8 | (buf.get(p + 7) & 0xFF);
+        }
+        return level.withLamps(cells, radii, colors);
+    }
+}
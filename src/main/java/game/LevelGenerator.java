@@ -0,0 +1,363 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static game.Tiles.*;
+
+/**
+ * Procedural levels: rooms from recursive division, with doors or open
+ * gaps between them, lamps, switches bound to door groups and an exit on the
+ * outer wall.
+ *
+ * Each candidate is built from its own seed, so a run is reproducible, and
+ * checked with the {@link Solver} under the current rules; levels that
+ * cannot be escaped, or are too short, are dropped. Candidates are generated
+ * and solved in parallel on the common fork-join pool.
+ */
+final class LevelGenerator {
+
+    /** A level that passed the solver, with its par. */
+    record Generated(Level level, int par) {}
+
+    /** Par ranges for the output buckets: easy below 20 moves, medium below 40, hard above. */
+    enum Difficulty {
+        EASY, MEDIUM, HARD;
+
+        static Difficulty of(int par) {
+            return par < 20 ? EASY : par < 40 ? MEDIUM : HARD;
+        }
+    }
+
+    static final int MIN_PAR = 8;   // shorter levels are rejected as trivial
+
+    private static final int MIN_SPLIT = 7; // rooms narrower than this are not divided again
+
+    private final int rows, cols;
+
+    /** Boards of rows x cols tiles, outer walls included (odd sizes give the neatest rooms). */
+    LevelGenerator(int rows, int cols) {
+        if (rows < 5 || cols < 5) throw new IllegalArgumentException("board too small: " + rows + "x" + cols);
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Returns the first {@code count} solvable levels in seed order starting at
+     * {@code seed}; the result only depends on the arguments, not on thread timing.
+     */
+    List<Generated> generate(int count, long seed) {
+        List<Generated> out = new ArrayList<>(count);
+        long next = seed;
+        int batch = Math.max(64, count);
+        while (out.size() < count) {
+            List<Generated> found = LongStream.range(next, next + batch).parallel()
+                    .mapToObj(this::tryGenerate)
+                    .filter(Objects::nonNull)
+                    .toList();
+            for (Generated g : found) {
+                if (out.size() == count) break;
+                out.add(g);
+            }
+            next += batch;
+        }
+        return out;
+    }
+
+    /** Builds the candidate for {@code seed} and returns it if the solver accepts it, else null. */
+    Generated tryGenerate(long seed) {
+        Level level = build(seed);
+        Solver.Result res = new Solver(level).solve(false); // already one task per candidate
+        return (res.solvable() && res.moves() >= MIN_PAR) ? new Generated(level, res.moves()) : null;
+    }
+
+    Level build(long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        char[] t = new char[rows * cols];
+        Arrays.fill(t, FLOOR);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (r == 0 || c == 0 || r == rows - 1 || c == cols - 1) t[r * cols + c] = WALL;
+            }
+        }
+        List<Integer> doors = new ArrayList<>();
+        divide(t, rnd, 1, 1, rows - 2, cols - 2, doors);
+
+        // player start: a room tile near the top-left, with a lit lamp next to it
+        int start = cols + 1;
+        while (start < t.length - cols && (t[start] != FLOOR || freeNeighbours(t, start) < 3)) start++;
+        if (start >= t.length - cols) start = cols + 1;
+        boolean[] covered = new boolean[t.length];
+        for (int n : new int[] { start + 1, start + cols, start - 1, start - cols }) {
+            if (t[n] != FLOOR) continue;
+            t[n] = LAMP_ON;
+            if (connected(t, start)) {
+                cover(t, covered, n);
+                break;
+            }
+            t[n] = FLOOR;
+        }
+
+        // a few loose wall blocks
+        int blocks = rows * cols / 30;
+        for (int k = 0; k < blocks; k++) place(t, rnd, start, WALL, null);
+
+        // lamps: visit walkable tiles in random order and put a lamp next to each one no lamp reaches yet
+        int[] order = new int[t.length];
+        int n = 0;
+        for (int i = 0; i < t.length; i++) if (passable(t[i], true)) order[n++] = i;
+        for (int k = n - 1; k > 0; k--) {
+            int j = rnd.nextInt(k + 1), tmp = order[k];
+            order[k] = order[j];
+            order[j] = tmp;
+        }
+        for (int k = 0; k < n; k++) {
+            int lamp = covered[order[k]] ? -1 : placeNear(t, rnd, start, order[k]);
+            if (lamp >= 0) cover(t, covered, lamp);
+        }
+
+        // switches: one per door group, each reachable from the start without opening a door
+        int groups = doors.isEmpty() ? 0 : 1 + rnd.nextInt(Math.min(3, doors.size()));
+        int[] switchCells = new int[groups];
+        for (int g = 0; g < groups; g++) switchCells[g] = place(t, rnd, start, SWITCH, reach(t, start, false));
+
+        placeExit(t, start);
+
+        Level level = Level.of("gen-" + rows + "x" + cols + "-" + seed, rows, cols, t, start / cols, start % cols);
+        if (groups <= 1) return level;
+
+        int bound = 0;
+        int[] cells = new int[doors.size() + groups], ids = new int[cells.length];
+        for (int g = 0; g < groups; g++) {
+            if (switchCells[g] < 0) continue;
+            cells[bound] = switchCells[g];
+            ids[bound++] = g + 1;
+        }
+        for (int k = 0; k < doors.size(); k++) {
+            cells[bound] = doors.get(k);
+            ids[bound++] = 1 + (k < groups ? k : rnd.nextInt(groups)); // every group gets a door
+        }
+        return level.withGroups(Arrays.copyOf(cells, bound), Arrays.copyOf(ids, bound));
+    }
+
+    // Recursive division of the box (r0,c0)-(r1,c1): walls on even lines, gaps on odd ones.
+    private void divide(char[] t, SplittableRandom rnd, int r0, int c0, int r1, int c1, List<Integer> doors) {
+        int h = r1 - r0 + 1, w = c1 - c0 + 1;
+        if (h < MIN_SPLIT && w < MIN_SPLIT) return;
+        boolean horizontal = (h == w) ? rnd.nextBoolean() : h > w;
+        if (horizontal ? h < MIN_SPLIT : w < MIN_SPLIT) horizontal = !horizontal;
+
+        if (horizontal) {
+            int wr = pick(rnd, r0 + 1, r1 - 1, 0);
+            int gc = pick(rnd, c0, c1, 1);
+            if (wr < 0 || gc < 0) return;
+            for (int c = c0; c <= c1; c++) t[wr * cols + c] = WALL;
+            gap(t, rnd, wr * cols + gc, doors);
+            divide(t, rnd, r0, c0, wr - 1, c1, doors);
+            divide(t, rnd, wr + 1, c0, r1, c1, doors);
+        } else {
+            int wc = pick(rnd, c0 + 1, c1 - 1, 0);
+            int gr = pick(rnd, r0, r1, 1);
+            if (wc < 0 || gr < 0) return;
+            for (int r = r0; r <= r1; r++) t[r * cols + wc] = WALL;
+            gap(t, rnd, gr * cols + wc, doors);
+            divide(t, rnd, r0, c0, r1, wc - 1, doors);
+            divide(t, rnd, r0, wc + 1, r1, c1, doors);
+        }
+    }
+
+    // A random value in [lo, hi] with the given parity, or -1 if there is none.
+    private static int pick(SplittableRandom rnd, int lo, int hi, int parity) {
+        int first = ((lo & 1) == parity) ? lo : lo + 1;
+        if (first > hi) return -1;
+        return first + 2 * rnd.nextInt((hi - first) / 2 + 1);
+    }
+
+    private static void gap(char[] t, SplittableRandom rnd, int i, List<Integer> doors) {
+        int roll = rnd.nextInt(10);
+        if (roll < 4) {
+            t[i] = FLOOR;
+        } else {
+            t[i] = (roll < 9) ? DOOR_LOCKED : DOOR_OPEN;
+            doors.add(i);
+        }
+    }
+
+    // Puts a blocking symbol on a random floor tile away from the start (and inside
+    // {@code within} if given), as long as every walkable tile stays reachable; returns its cell or -1.
+    private int place(char[] t, SplittableRandom rnd, int start, char symbol, boolean[] within) {
+        for (int tries = 0; tries < 20; tries++) {
+            int i = randomFloor(t, rnd);
+            if (i < 0) return -1;
+            if (i == start || isDoorway(t, i) || (within != null && !within[i])) continue;
+            t[i] = symbol;
+            if (connected(t, start)) return i;
+            t[i] = FLOOR;
+        }
+        return -1;
+    }
+
+    // Every floor, door and exit tile can be reached from the start when doors are opened.
+    private boolean connected(char[] t, int start) {
+        boolean[] seen = reach(t, start, true);
+        for (int i = 0; i < t.length; i++) {
+            if (passable(t[i], true) && !seen[i]) return false;
+        }
+        return true;
+    }
+
+    // One of the 3x3 tiles around {@code i} becomes a lamp, if that keeps the board connected.
+    private int placeNear(char[] t, SplittableRandom rnd, int start, int i) {
+        int first = rnd.nextInt(9);
+        for (int k = 0; k < 9; k++) {
+            int d = (first + k) % 9;
+            int j = i + (d / 3 - 1) * cols + (d % 3 - 1);
+            if (t[j] != FLOOR || j == start || isDoorway(t, j)) continue;
+            t[j] = LAMP_OFF;
+            if (connected(t, start)) return j;
+            t[j] = FLOOR;
+        }
+        return -1;
+    }
+
+    // Marks the tiles a lamp is expected to light: within RADIUS - 1 steps over floor,
+    // a cheap stand-in for line of sight that never sees through walls or doors.
+    private void cover(char[] t, boolean[] covered, int lamp) {
+        int reach = LightingEngine.RADIUS - 1;
+        int[] queue = new int[t.length], depth = new int[t.length];
+        boolean[] seen = new boolean[t.length];
+        int head = 0, tail = 0;
+        queue[tail++] = lamp;
+        seen[lamp] = true;
+        while (head < tail) {
+            int i = queue[head++];
+            covered[i] = true;
+            if (depth[i] == reach) continue;
+            for (int n : new int[] { i - cols, i + cols, i - 1, i + 1 }) {
+                if (seen[n] || !(t[n] == FLOOR || t[n] == EXIT)) continue;
+                seen[n] = true;
+                depth[n] = depth[i] + 1;
+                queue[tail++] = n;
+            }
+        }
+    }
+
+    // Flood fill from the start over floor and the exit, and over doors too (or open ones only).
+    private boolean[] reach(char[] t, int start, boolean throughDoors) {
+        int[] queue = new int[t.length];
+        boolean[] seen = new boolean[t.length];
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        seen[start] = true;
+        while (head < tail) {
+            int i = queue[head++];
+            // the outer wall is never passable, so neighbours never leave the board or wrap
+            for (int n : new int[] { i - cols, i + cols, i - 1, i + 1 }) {
+                if (seen[n] || !passable(t[n], throughDoors)) continue;
+                seen[n] = true;
+                queue[tail++] = n;
+            }
+        }
+        return seen;
+    }
+
+    private static boolean passable(char ch, boolean throughDoors) {
+        return ch == FLOOR || ch == EXIT || ch == DOOR_OPEN || (throughDoors && ch == DOOR_LOCKED);
+    }
+
+    private int randomFloor(char[] t, SplittableRandom rnd) {
+        for (int tries = 0; tries < 100; tries++) {
+            int i = (1 + rnd.nextInt(rows - 2)) * cols + 1 + rnd.nextInt(cols - 2);
+            if (t[i] == FLOOR && !isDoorway(t, i)) return i;
+        }
+        return -1;
+    }
+
+    // Doors, gaps and the tiles in front of them stay free so rooms remain connected.
+    private boolean isDoorway(char[] t, int i) {
+        return isPassage(t, i) || isPassage(t, i - cols) || isPassage(t, i + cols)
+                || isPassage(t, i - 1) || isPassage(t, i + 1);
+    }
+
+    // A door, or a floor tile squeezed between two walls.
+    private boolean isPassage(char[] t, int i) {
+        if (isDoor(t[i])) return true;
+        if (t[i] != FLOOR) return false; // also rules out the outer wall
+        return (t[i - 1] == WALL && t[i + 1] == WALL) || (t[i - cols] == WALL && t[i + cols] == WALL);
+    }
+
+    private int freeNeighbours(char[] t, int i) {
+        int n = 0;
+        for (int j : new int[] { i + 1, i + cols, i - 1, i - cols }) {
+            if (t[j] == FLOOR) n++;
+        }
+        return n;
+    }
+
+    // The exit replaces the outer wall next to floor farthest from the start (right or bottom side).
+    private void placeExit(char[] t, int start) {
+        int sr = start / cols, sc = start % cols;
+        int best = -1, bestDist = -1;
+        for (int r = 1; r < rows - 1; r++) {
+            best = better(t, r * cols + cols - 1, r * cols + cols - 2, sr, sc, best, bestDist);
+            if (best >= 0) bestDist = dist(best, sr, sc);
+        }
+        for (int c = 1; c < cols - 1; c++) {
+            best = better(t, (rows - 1) * cols + c, (rows - 2) * cols + c, sr, sc, best, bestDist);
+            if (best >= 0) bestDist = dist(best, sr, sc);
+        }
+        if (best < 0) best = (rows - 2) * cols + cols - 1;
+        t[best] = EXIT;
+    }
+
+    private int better(char[] t, int wall, int inside, int sr, int sc, int best, int bestDist) {
+        if (t[inside] != FLOOR) return best;
+        return dist(wall, sr, sc) > bestDist ? wall : best;
+    }
+
+    private int dist(int i, int sr, int sc) {
+        return Math.abs(i / cols - sr) + Math.abs(i % cols - sc);
+    }
+
+    /**
+     * Generates levels and writes one pack per difficulty.
+     * <pre>
+     *   LevelGenerator count rows cols out-dir [seed]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("usage: LevelGenerator count rows cols out-dir [seed]");
+            return;
+        }
+        int count = Integer.parseInt(args[0]);
+        LevelGenerator gen = new LevelGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        Path dir = Path.of(args[3]);
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+        long t0 = System.nanoTime();
+        List<Generated> levels = gen.generate(count, seed);
+        double secs = (System.nanoTime() - t0) / 1e9;
+
+        Files.createDirectories(dir);
+        for (Difficulty d : Difficulty.values()) {
+            List<Level> bucket = levels.stream()
+                    .filter(g -> Difficulty.of(g.par()) == d)
+                    .map(Generated::level)
+                    .toList();
+            if (bucket.isEmpty()) continue;
+            Path file = dir.resolve(d.name().toLowerCase() + ".lvp");
+            LevelPack.write(file, bucket);
+            System.out.println(file + ": " + bucket.size() + " levels");
+        }
+        System.out.printf("%d levels from seed %d in %.1f s (%.0f per minute)%n",
+                levels.size(), seed, secs, levels.size() * 60 / secs);
+    }
+}
@@ -0,0 +1,155 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pack of binary level records behind an offset index, read through a
+ * memory-mapped file.
+ *
+ * Layout: magic "EGPK", u16 version, u16 reserved, i32 level count,
+ * i64 offset of each record, then the records (see {@link LevelBinary}).
+ * Opening a pack reads the header only; {@link #level(int)} decodes a single
+ * record, so only the pages it touches are ever read from disk.
+ */
+final class LevelPack implements LevelSource, AutoCloseable {
+
+    static final int MAGIC = 0x4547504B; // "EGPK"
+    static final int VERSION = LevelBinary.VERSION; // records use the same version
+    private static final int HEADER = 12;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int version, count;
+
+    private LevelPack(Path file, FileChannel channel, MappedByteBuffer map, int version, int count) {
+        this.file = file;
+        this.channel = channel;
+        this.map = map;
+        this.version = version;
+        this.count = count;
+    }
+
+    static LevelPack open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException(file + ": pack larger than 2 GB");
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (map.limit() < HEADER || map.getInt(0) != MAGIC) throw new IOException(file + ": not a level pack");
+            int version = map.getShort(4) & 0xFFFF;
+            if (version < 1 || version > VERSION) throw new IOException(file + ": unsupported version " + version);
+            int count = map.getInt(8);
+            if (count < 0 || HEADER + 8L * count > map.limit()) throw new IOException(file + ": corrupt index");
+            return new LevelPack(file, ch, map, version, count);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Level level(int index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException(file + ": no level " + index);
+        long offset = map.getLong(HEADER + 8 * index);
+        return LevelBinary.decode(map, (int) offset, version);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Writes a pack; the index is filled in after the records so levels can be streamed in. */
+    static void write(Path file, List<Level> levels) throws IOException {
+        int count = levels.size();
+        long[] offsets = new long[count];
+        try (CountingStream counter = new CountingStream(Files.newOutputStream(file));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(counter))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) out.writeLong(0);
+            for (int i = 0; i < count; i++) {
+                out.flush();
+                offsets[i] = counter.written;
+                LevelBinary.encode(out, levels.get(i));
+            }
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer index = ByteBuffer.allocate(8 * count);
+            for (long off : offsets) index.putLong(off);
+            index.flip();
+            ch.write(index, HEADER);
+        }
+    }
+
+    private static final class CountingStream extends FilterOutputStream {
+        long written;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+        }
+    }
+
+    /**
+     * Level pack tool.
+     * <pre>
+     *   LevelPack pack  out.lvp in.lvl [more.lvl ...]   build a pack from text levels
+     *   LevelPack list  in.lvp                          print the index
+     *   LevelPack text  in.lvp index                    print one level as text
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("pack")) {
+            List<Level> levels = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) LevelText.stream(Path.of(args[i]), levels::add);
+            write(Path.of(args[1]), levels);
+            System.out.println("Wrote " + levels.size() + " levels to " + args[1]);
+        } else if (args.length == 2 && args[0].equals("list")) {
+            try (LevelPack pack = open(Path.of(args[1]))) {
+                for (int i = 0; i < pack.size(); i++) {
+                    Level l = pack.level(i);
+                    System.out.println(i + ": " + l.name() + " (" + l.rows() + "x" + l.cols() + ")");
+                }
+            }
+        } else if (args.length == 3 && args[0].equals("text")) {
+            try (LevelPack pack = open(Path.of(args[1]));
+                 var out = new OutputStreamWriter(System.out)) {
+                LevelText.write(out, pack.level(Integer.parseInt(args[2])));
+            }
+        } else {
+            System.out.println("usage: LevelPack pack out.lvp in.lvl... | list in.lvp | text in.lvp index");
+        }
+    }
+}
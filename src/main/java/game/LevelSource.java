@@ -0,0 +1,20 @@
+package game;
+
+import java.util.List;
+
+/** An indexed collection of levels, e.g. a pack file or levels parsed from text. */
+interface LevelSource {
+
+    int size();
+
+    /** Returns level {@code index} (0-based). */
+    Level level(int index);
+
+    static LevelSource of(List<Level> levels) {
+        List<Level> copy = List.copyOf(levels);
+        return new LevelSource() {
+            @Override public int size() { return copy.size(); }
+            @Override public Level level(int index) { return copy.get(index); }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One level prepared for many sessions at once (see {@link SessionManager}).
+ *
+ * Holds the level's starting board, lit once, which every
+ * {@link GameEngine#GameEngine(LevelTemplate) session engine} reads until
+ * its first lamp or switch, and each lamp's lit area per state of the doors
+ * in its light box, computed on first use and then shared by every session.
+ * The board is never written after construction and the area cache is a
+ * concurrent map per lamp, so one template serves any number of threads.
+ */
+final class LevelTemplate {
+
+    /** The tiles a lamp lights, as bits of the board's {@code lit} words: bits[j] belongs in word words[j]. */
+    record LampArea(int[] words, long[] bits) {}
+
+    private final Level level;
+    private final Board board;          // starting state; read-only once lit
+    private final FieldOfView fov;
+    private final int[][] boxDoors;     // per lamp: door cells in its light box, ascending
+    private final List<Map<Long, LampArea>> areas;  // per lamp: area by open state of its box doors
+    private final SharedLighting lighting;      // of the starting board; never changes it again
+
+    LevelTemplate(Level level) {
+        this.level = level;
+        this.board = new Board(level);
+        this.fov = FieldOfView.standard();
+
+        int cols = board.cols;
+        int[] lamps = board.lampCells(), doors = board.doorCells();
+        boxDoors = new int[lamps.length][];
+        areas = new ArrayList<>(lamps.length);
+        int[] buf = new int[16];
+        for (int k = 0; k < lamps.length; k++) {
+            int lr = lamps[k] / cols, lc = lamps[k] % cols, radius = board.lampRadius(k);
+            int c0 = Math.max(0, lc - radius), c1 = Math.min(cols - 1, lc + radius);
+            int n = 0;
+            for (int r = Math.max(0, lr - radius); r <= Math.min(board.rows - 1, lr + radius); r++) {
+                // doors are sorted by cell, so the ones in this row of the box are contiguous
+                int j = Arrays.binarySearch(doors, r * cols + c0);
+                for (j = (j >= 0) ? j : -j - 1; j < doors.length && doors[j] <= r * cols + c1; j++) {
+                    if (n == buf.length) buf = Arrays.copyOf(buf, n * 2);
+                    buf[n++] = doors[j];
+                }
+            }
+            boxDoors[k] = Arrays.copyOf(buf, n);
+            areas.add(new ConcurrentHashMap<>());
+        }
+
+        lighting = new SharedLighting(this, board);
+        lighting.rebuild();
+    }
+
+    Level level() { return level; }
+
+    /** The starting board; copy it before changing anything. */
+    Board board() { return board; }
+
+    /** Lighting for engines still on the starting board; only its tint may be asked for. */
+    Lighting lighting() { return lighting; }
+
+    /**
+     * The area lamp {@code k} lights on {@code b}, one of this level's boards,
+     * given its doors as they are now. Lamps with more than 64 doors in their
+     * box are computed every time; all others are cached.
+     */
+    LampArea area(int k, Board b) {
+        int[] doors = boxDoors[k];
+        if (doors.length > 64) return compute(k, b);
+        long key = 0;
+        for (int j = 0; j < doors.length; j++) {
+            int d = doors[j];
+            if ((b.doorsOpen[d >>> 6] & (1L << d)) != 0) key |= 1L << j;
+        }
+        Map<Long, LampArea> cache = areas.get(k);
+        LampArea area = cache.get(key);
+        if (area == null) {
+            // two sessions may compute the same area at once; both results are equal, one is kept
+            area = compute(k, b);
+            LampArea raced = cache.putIfAbsent(key, area);
+            if (raced != null) area = raced;
+        }
+        return area;
+    }
+
+    /** Door state combinations cached so far, over all lamps. */
+    int cachedAreas() {
+        int n = 0;
+        for (Map<Long, LampArea> m : areas) n += m.size();
+        return n;
+    }
+
+    private LampArea compute(int k, Board b) {
+        int cols = b.cols, cell = b.lampCells()[k], radius = b.lampRadius(k);
+        int lr = cell / cols, lc = cell % cols;
+        int first = (Math.max(0, lr - radius) * cols + Math.max(0, lc - radius)) >>> 6;
+        int last = (Math.min(b.rows - 1, lr + radius) * cols + Math.min(cols - 1, lc + radius)) >>> 6;
+        long[] span = new long[last - first + 1];
+        fov.compute(b, lr, lc, radius, (r, c) -> {
+            int i = r * cols + c;
+            span[(i >>> 6) - first] |= 1L << i;
+        });
+
+        int n = 0;
+        for (long w : span) if (w != 0) n++;
+        int[] words = new int[n];
+        long[] bits = new long[n];
+        n = 0;
+        for (int w = 0; w < span.length; w++) {
+            if (span[w] == 0) continue;
+            words[n] = first + w;
+            bits[n++] = span[w];
+        }
+        return new LampArea(words, bits);
+    }
+}
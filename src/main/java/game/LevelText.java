@@ -0,0 +1,172 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The human-editable level format.
+ *
+ * Levels use the same symbols as {@link Levels#LEVEL1}, one row per line,
+ * and are separated by blank lines. A line starting with ';' is a comment,
+ * except "; name: X" right before a level, which names it, and
+ * "; group: G r,c r,c ..." anywhere in or before a level, which binds the
+ * switches and doors at those cells to group G (all others are in group 0),
+ * and "; lamp: r,c radius [#RRGGBB]", which gives the lamp at r,c its own
+ * light radius and colour (others shine white with the default radius).
+ *
+ * <pre>
+ * ; name: Two switches
+ * ; group: 1 1,5 2,3
+ * ; lamp: 0,2 6 #FFB060
+ * @.*S.D.E
+ * #..LS###
+ * </pre>
+ */
+final class LevelText {
+
+    private LevelText() {}
+
+    static List<Level> read(Path file) throws IOException {
+        List<Level> out = new ArrayList<>();
+        stream(file, out::add);
+        return out;
+    }
+
+    /** Parses the file line by line, handing each level over as soon as it is complete. */
+    static void stream(Path file, Consumer<Level> sink) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            stream(in, file.getFileName().toString(), sink);
+        }
+    }
+
+    static void stream(BufferedReader in, String source, Consumer<Level> sink) throws IOException {
+        List<String> rows = new ArrayList<>();
+        List<int[]> groups = new ArrayList<>(); // {group, r, c}
+        List<int[]> lamps = new ArrayList<>();  // {r, c, radius, colour}
+        String name = null;
+        int count = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.stripTrailing();
+            if (line.startsWith(";")) {
+                String body = line.substring(1).trim();
+                if (rows.isEmpty() && body.startsWith("name:")) name = body.substring(5).trim();
+                else if (body.startsWith("group:")) parseGroup(body.substring(6).trim(), groups, source);
+                else if (body.startsWith("lamp:")) parseLamp(body.substring(5).trim(), lamps, source);
+                continue;
+            }
+            if (line.isEmpty()) {
+                if (!rows.isEmpty()) {
+                    count++;
+                    sink.accept(build(name != null ? name : source + "#" + count, rows, groups, lamps));
+                    rows.clear();
+                    groups.clear();
+                    lamps.clear();
+                    name = null;
+                }
+                continue;
+            }
+            rows.add(line);
+        }
+        if (!rows.isEmpty()) {
+            count++;
+            sink.accept(build(name != null ? name : source + "#" + count, rows, groups, lamps));
+        }
+    }
+
+    private static Level build(String name, List<String> rows, List<int[]> groups, List<int[]> lamps) {
+        Level level = Level.parse(name, rows.toArray(new String[0]));
+        if (!groups.isEmpty()) level = withGroups(level, groups);
+        if (lamps.isEmpty()) return level;
+        int[] cells = new int[lamps.size()], radii = new int[cells.length], colors = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            int[] l = lamps.get(i);
+            if (l[0] < 0 || l[0] >= level.rows() || l[1] < 0 || l[1] >= level.cols()) {
+                throw new IllegalArgumentException(name + ": lamp cell " + l[0] + "," + l[1] + " outside the board");
+            }
+            cells[i] = l[0] * level.cols() + l[1];
+            radii[i] = l[2];
+            colors[i] = l[3];
+        }
+        return level.withLamps(cells, radii, colors);
+    }
+
+    private static Level withGroups(Level level, List<int[]> groups) {
+        String name = level.name();
+        int[] cells = new int[groups.size()], ids = new int[groups.size()];
+        for (int i = 0; i < cells.length; i++) {
+            int[] g = groups.get(i);
+            if (g[1] < 0 || g[1] >= level.rows() || g[2] < 0 || g[2] >= level.cols()) {
+                throw new IllegalArgumentException(name + ": group cell " + g[1] + "," + g[2] + " outside the board");
+            }
+            ids[i] = g[0];
+            cells[i] = g[1] * level.cols() + g[2];
+        }
+        return level.withGroups(cells, ids);
+    }
+
+    // "G r,c r,c ..."
+    private static void parseGroup(String spec, List<int[]> out, String source) {
+        String[] parts = spec.split("\\s+");
+        try {
+            int g = Integer.parseInt(parts[0]);
+            for (int i = 1; i < parts.length; i++) {
+                String[] rc = parts[i].split(",");
+                out.add(new int[] { g, Integer.parseInt(rc[0].trim()), Integer.parseInt(rc[1].trim()) });
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(source + ": bad group line '" + spec + "'");
+        }
+    }
+
+    // "r,c radius [#RRGGBB]"
+    private static void parseLamp(String spec, List<int[]> out, String source) {
+        String[] parts = spec.split("\\s+");
+        try {
+            if (parts.length < 2 || parts.length > 3) throw new IllegalArgumentException();
+            String[] rc = parts[0].split(",");
+            int color = Level.WHITE;
+            if (parts.length == 3) {
+                if (!parts[2].startsWith("#") || parts[2].length() != 7) throw new IllegalArgumentException();
+                color = Integer.parseInt(parts[2].substring(1), 16);
+            }
+            out.add(new int[] { Integer.parseInt(rc[0].trim()), Integer.parseInt(rc[1].trim()), Integer.parseInt(parts[1]), color });
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(source + ": bad lamp line '" + spec + "'");
+        }
+    }
+
+    static void write(Writer out, Level level) throws IOException {
+        out.write("; name: " + level.name() + "\n");
+        int[] bound = level.boundCells();
+        for (int g : Arrays.stream(bound).map(level::group).distinct().sorted().toArray()) {
+            StringBuilder line = new StringBuilder("; group: ").append(g);
+            for (int cell : bound) {
+                if (level.group(cell) == g) line.append(' ').append(cell / level.cols()).append(',').append(cell % level.cols());
+            }
+            out.write(line.append('\n').toString());
+        }
+        for (int cell : level.lampCells()) {
+            out.write(String.format("; lamp: %d,%d %d #%06X\n", cell / level.cols(), cell % level.cols(),
+                    level.lampRadius(cell), level.lampColor(cell)));
+        }
+        StringBuilder row = new StringBuilder(level.cols());
+        for (int r = 0; r < level.rows(); r++) {
+            row.setLength(0);
+            for (int c = 0; c < level.cols(); c++) {
+                boolean start = r == level.startRow() && c == level.startCol();
+                row.append(start ? Tiles.PLAYER : level.tile(r, c));
+            }
+            out.write(row.append('\n').toString());
+        }
+        out.write("\n");
+    }
+}
@@ -0,0 +1,44 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/** Built-in levels and loading levels from files. */
+final class Levels {
+
+    // This part can be changed later for more fun.
+    static final String[] LEVEL1 = {
+    		"@.*###########",
+            "#.....D..L..##",
+            "#.##..##..#.D#",
+            "#...#.L....#.#",
+            "#LSD.#...#.#.E",
+            "#.......#.#..#",
+            "#.##L..#L#D..#",
+            "#D.#.#.....L.#",
+            "##############"
+    };
+
+    private Levels() {}
+
+    static Level level1() {
+        return Level.parse("LEVEL1", LEVEL1);
+    }
+
+    /** The built-in levels as a source. */
+    static LevelSource builtIn() {
+        return LevelSource.of(List.of(level1()));
+    }
+
+    /**
+     * Opens a level file by extension: .lvp pack (memory-mapped, random access),
+     * .lvb single binary level, anything else the text format.
+     */
+    static LevelSource open(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".lvp")) return LevelPack.open(file);
+        if (name.endsWith(".lvb")) return LevelSource.of(List.of(LevelBinary.read(file)));
+        return LevelSource.of(LevelText.read(file));
+    }
+}
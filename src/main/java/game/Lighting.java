@@ -0,0 +1,32 @@
+package game;
+
+/**
+ * Keeps a {@link Board}'s {@code lit} bitboard in line with its lamps and
+ * doors. {@link LightingEngine} does it with per-tile light buffers;
+ * {@link SharedLighting} from areas shared by every session on a level.
+ */
+interface Lighting {
+
+    /** Lights the board from scratch. */
+    void rebuild();
+
+    /** Call after the lamp at (r, c) was switched ON. */
+    void lampOn(int r, int c);
+
+    /** Call after the lamp at (r, c) was switched OFF. */
+    void lampOff(int r, int c);
+
+    /** Call after the doors at the given cell indices (r * cols + c) flipped. */
+    void doorsToggled(int[] doorCells, int count);
+
+    /**
+     * Tiles (r * cols + c) whose lit state flipped during the last lampOn,
+     * lampOff or doorsToggled call, the first {@link #changedCount()} entries.
+     */
+    int[] changedTiles();
+
+    int changedCount();
+
+    /** The light on tile {@code i} as 12-bit 0xRGB (see {@link BoardModel#lightTint}). */
+    int tint(int i);
+}
@@ -0,0 +1,229 @@
+package game;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Incremental lighting for a {@link Board}.
+ *
+ * Every lamp has its own radius and colour (see {@link Level#withLamps}).
+ * Its light is cached as a box of per-tile weights, 0 where it does not
+ * reach, falling off from {@link #FULL} under the lamp to just above
+ * {@link #THRESHOLD} at its radius. The lamps that are ON add their weights
+ * into two flat per-tile buffers: the total intensity and the weighted
+ * red/green/blue sums. A tile is lit (and walkable) while its intensity is
+ * at least the threshold, so {@code lit} is still exactly the union of the
+ * ON lamps' areas; the colour buffer only changes how it is drawn.
+ *
+ * Turning a lamp on or off is one row-wise pass over its box, and a door
+ * flip only recomputes lamps whose box contains that door. Which tiles a
+ * lamp reaches is up to the {@link FieldOfView}.
+ */
+final class LightingEngine implements Lighting {
+
+    static final int RADIUS = 4; // default light radius in tiles (change this to 3/5/6 to different difficulty)
+    static final int FULL = 255;        // intensity right under a lamp
+    static final int THRESHOLD = 64;    // least intensity of a lit tile; also the weight at a lamp's radius
+
+    // Weight boxes by radius: FULL in the middle, THRESHOLD + (FULL - THRESHOLD) * f^2 with
+    // f = 1 - distance / (radius + 1) inside the circle, 0 outside
+    private static final byte[][] FALLOFF = new byte[Level.MAX_LAMP_RADIUS + 1][];
+    static {
+        for (int r = 0; r < FALLOFF.length; r++) {
+            int side = 2 * r + 1;
+            FALLOFF[r] = new byte[side * side];
+            for (int dr = -r; dr <= r; dr++) {
+                for (int dc = -r; dc <= r; dc++) {
+                    if (dr * dr + dc * dc > r * r) continue;
+                    double f = 1 - Math.sqrt(dr * dr + dc * dc) / (r + 1);
+                    FALLOFF[r][(dr + r) * side + dc + r] = (byte) (THRESHOLD + Math.round((FULL - THRESHOLD) * f * f));
+                }
+            }
+        }
+    }
+
+    private final Board board;
+    private final FieldOfView fov;
+    private final int rows, cols;
+    private final int maxRadius;
+
+    private final byte[][] boxes;    // unsigned weights per lamp (Board.lampCells order), null when stale
+    private final int[] intensity;   // summed weight of the ON lamps per tile
+    private final int[] rgb;         // summed weight * channel, three ints per tile
+    private final BitSet touched;    // lamps already handled in one doorsToggled() call
+
+    private int[] changed = new int[64];  // tiles whose lit state flipped in the last call
+    private int changedCount;
+
+    LightingEngine(Board board) {
+        this(board, FieldOfView.standard());
+    }
+
+    LightingEngine(Board board, FieldOfView fov) {
+        this.board = board;
+        this.fov = fov;
+        this.rows = board.rows;
+        this.cols = board.cols;
+        this.maxRadius = board.maxLampRadius();
+        this.boxes = new byte[board.lampCells().length][];
+        this.intensity = new int[board.cells];
+        this.rgb = new int[3 * board.cells];
+        this.touched = new BitSet(boxes.length);
+    }
+
+    /** Drops every cached box and lights the board from scratch. */
+    @Override
+    public void rebuild() {
+        GameEvents.Lighting event = new GameEvents.Lighting();
+        event.begin();
+        changedCount = 0;
+        Arrays.fill(boxes, null);
+        Arrays.fill(intensity, 0);
+        Arrays.fill(rgb, 0);
+        board.clearLit();
+
+        int[] lamps = board.lampCells();
+        for (int k = 0; k < lamps.length; k++) {
+            if (board.isLampOn(lamps[k])) apply(k, +1);
+        }
+        commit(event, "rebuild");
+    }
+
+    @Override
+    public void lampOn(int r, int c) {
+        GameEvents.Lighting event = new GameEvents.Lighting();
+        event.begin();
+        changedCount = 0;
+        apply(board.lampIndex(r * cols + c), +1);
+        commit(event, "lampOn");
+    }
+
+    @Override
+    public void lampOff(int r, int c) {
+        GameEvents.Lighting event = new GameEvents.Lighting();
+        event.begin();
+        changedCount = 0;
+        apply(board.lampIndex(r * cols + c), -1);
+        commit(event, "lampOff");
+    }
+
+    /** Only lamps within light range of one of those doors are recomputed. */
+    @Override
+    public void doorsToggled(int[] doorCells, int count) {
+        GameEvents.Lighting event = new GameEvents.Lighting();
+        event.begin();
+        changedCount = 0;
+        touched.clear();
+        int[] lamps = board.lampCells();
+        for (int i = 0; i < count; i++) {
+            int dr = doorCells[i] / cols, dc = doorCells[i] % cols;
+            int r0 = Math.max(0, dr - maxRadius), r1 = Math.min(rows - 1, dr + maxRadius);
+            int c0 = Math.max(0, dc - maxRadius), c1 = Math.min(cols - 1, dc + maxRadius);
+
+            for (int r = r0; r <= r1; r++) {
+                // lamps are sorted by cell, so the ones in this row of the box are contiguous
+                int k = firstLampAtOrAfter(r * cols + c0);
+                for (; k < lamps.length && lamps[k] <= r * cols + c1; k++) {
+                    int radius = board.lampRadius(k);
+                    if (touched.get(k) || Math.abs(r - dr) > radius || Math.abs(lamps[k] % cols - dc) > radius) continue;
+                    touched.set(k);
+
+                    if (board.isLampOn(lamps[k])) {
+                        apply(k, -1);
+                        boxes[k] = null;
+                        apply(k, +1);
+                    } else {
+                        boxes[k] = null; // recomputed lazily when switched on
+                    }
+                }
+            }
+        }
+        commit(event, "doorsToggled");
+    }
+
+    /** A tile can appear twice when a door flip re-lights it. */
+    @Override public int[] changedTiles() { return changed; }
+    @Override public int changedCount() { return changedCount; }
+
+    /**
+     * The light on tile {@code i} as 12-bit 0xRGB, 4 bits a channel: each
+     * lamp's colour scaled by its weight there, added up and clipped.
+     */
+    @Override
+    public int tint(int i) {
+        int p = 3 * i;
+        return channel(rgb[p]) << 8 | channel(rgb[p + 1]) << 4 | channel(rgb[p + 2]);
+    }
+
+    private static int channel(int sum) {
+        return Math.min(15, (sum / FULL * 15 + 127) / 255);
+    }
+
+    private void commit(GameEvents.Lighting event, String operation) {
+        if (!event.shouldCommit()) return;
+        event.operation = operation;
+        event.litTiles = board.countLit();
+        event.commit();
+    }
+
+    /** Sets bit (r * cols + c) in {@code words} for every tile the lamp at (lr, lc) lights when ON. */
+    void lightArea(int lr, int lc, long[] words) {
+        int k = board.lampIndex(lr * cols + lc);
+        int radius = (k >= 0) ? board.lampRadius(k) : RADIUS;
+        fov.compute(board, lr, lc, radius, (r, c) -> {
+            int idx = r * cols + c;
+            words[idx >>> 6] |= 1L << idx;
+        });
+    }
+
+    private int firstLampAtOrAfter(int cell) {
+        int k = Arrays.binarySearch(board.lampCells(), cell);
+        return (k >= 0) ? k : -k - 1;
+    }
+
+    // Adds (delta = +1) or removes (delta = -1) lamp k's light, one box row at a time.
+    private void apply(int k, int delta) {
+        byte[] box = box(k);
+        int cell = board.lampCells()[k], radius = board.lampRadius(k), side = 2 * radius + 1;
+        int color = board.lampColor(k);
+        int red = (color >>> 16) * delta, green = (color >>> 8 & 0xFF) * delta, blue = (color & 0xFF) * delta;
+        int lr = cell / cols, lc = cell % cols;
+        int c0 = Math.max(0, lc - radius), c1 = Math.min(cols - 1, lc + radius);
+        for (int r = Math.max(0, lr - radius), r1 = Math.min(rows - 1, lr + radius); r <= r1; r++) {
+            int b = (r - lr + radius) * side + (c0 - lc + radius);
+            int idx = r * cols + c0;
+            for (int c = c0; c <= c1; c++, b++, idx++) {
+                int w = box[b] & 0xFF;
+                if (w == 0) continue;
+                int before = intensity[idx], after = before + w * delta;
+                intensity[idx] = after;
+                int p = 3 * idx;
+                rgb[p] += w * red;
+                rgb[p + 1] += w * green;
+                rgb[p + 2] += w * blue;
+                if ((before >= THRESHOLD) != (after >= THRESHOLD)) {
+                    board.setLit(idx, delta > 0);
+                    if (changedCount == changed.length) changed = Arrays.copyOf(changed, changedCount * 2);
+                    changed[changedCount++] = idx;
+                }
+            }
+        }
+    }
+
+    // Lamp k's weights with wall blocking, computed on first use after it went stale.
+    private byte[] box(int k) {
+        byte[] box = boxes[k];
+        if (box == null) {
+            int cell = board.lampCells()[k], radius = board.lampRadius(k), side = 2 * radius + 1;
+            int lr = cell / cols, lc = cell % cols;
+            byte[] falloff = FALLOFF[radius];
+            byte[] b = new byte[side * side];
+            fov.compute(board, lr, lc, radius, (r, c) -> {
+                int j = (r - lr + radius) * side + (c - lc + radius);
+                b[j] = falloff[j];
+            });
+            boxes[k] = box = b;
+        }
+        return box;
+    }
+}
@@ -0,0 +1,114 @@
+package game;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.Label;
+import javafx.scene.text.Font;
+
+/**
+ * On-screen performance overlay for the game screen: frame time and what
+ * the last click cost in the engine and the renderer. Hidden by default;
+ * F3 or {@code -Dhud=true} shows it. While hidden its frame timer is stopped.
+ */
+final class MetricsHud {
+
+    private static final long TEXT_INTERVAL = 250_000_000L; // refresh the text 4 times a second
+
+    private final Label label = new Label();
+    private final AnimationTimer timer;
+
+    private long lastFrame, lastText;
+    private double frameAvg;            // ms, exponential moving average
+    private double frameMax;            // ms, worst frame since the last text update
+
+    private String lastAction = "-";
+    private long engineNanos, renderNanos, buildNanos;
+    private int litTiles, cellsPainted, sceneNodes;
+    private long imageViews;
+
+    MetricsHud() {
+        label.setFont(Font.font("Monospaced", 12));
+        label.setStyle("-fx-background-color: rgba(0,0,0,0.65); -fx-text-fill: #e0e0e0;");
+        label.setPadding(new Insets(6));
+        label.setMouseTransparent(true);
+        label.setVisible(false);
+
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (lastFrame != 0) {
+                    double ms = (now - lastFrame) / 1e6;
+                    frameAvg = (frameAvg == 0) ? ms : frameAvg * 0.9 + ms * 0.1;
+                    frameMax = Math.max(frameMax, ms);
+                }
+                lastFrame = now;
+                if (now - lastText >= TEXT_INTERVAL) {
+                    lastText = now;
+                    updateText();
+                    frameMax = 0;
+                }
+            }
+        };
+    }
+
+    Node node() {
+        return label;
+    }
+
+    boolean isShown() {
+        return label.isVisible();
+    }
+
+    void setShown(boolean shown) {
+        label.setVisible(shown);
+        lastFrame = 0;
+        if (shown) {
+            updateText();
+            timer.start();
+        } else {
+            timer.stop();
+        }
+    }
+
+    void toggle() {
+        setShown(!isShown());
+    }
+
+    void clicked(GameAction action, long engineNanos, long renderNanos, int litTiles,
+                 int cellsPainted, long imageViews) {
+        this.lastAction = action.name();
+        this.engineNanos = engineNanos;
+        this.renderNanos = renderNanos;
+        this.litTiles = litTiles;
+        this.cellsPainted = cellsPainted;
+        this.imageViews = imageViews;
+    }
+
+    void boardBuilt(long nanos, int sceneNodes) {
+        this.buildNanos = nanos;
+        this.sceneNodes = sceneNodes;
+    }
+
+    private void updateText() {
+        label.setText(String.format(
+                "frame  %6.2f ms (max %.2f)%n"
+                + "click  %s%n"
+                + "  engine %6.3f ms%n"
+                + "  render %6.3f ms (%d cells)%n"
+                + "lit %d  nodes %d  imageviews %d%n"
+                + "build  %6.2f ms",
+                frameAvg, frameMax, lastAction, engineNanos / 1e6, renderNanos / 1e6, cellsPainted,
+                litTiles, sceneNodes, imageViews, buildNanos / 1e6));
+    }
+
+    /** Counts {@code root} and every node below it. */
+    static int countNodes(Node root) {
+        int n = 1;
+        if (root instanceof Parent p) {
+            for (Node child : p.getChildrenUnmodifiable()) n += countNodes(child);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,56 @@
+package game;
+
+/**
+ * Slides the player between neighbouring tiles; longer jumps (undo past a
+ * reset, a new level) are instant. Positions are in fractional tiles.
+ */
+final class PlayerTween {
+
+    static final long MOVE_NANOS = 110_000_000L;
+
+    private double fromR, fromC;
+    private int toR, toC;
+    private long start;         // 0: the slide starts on the next step
+    private double t = 1;       // eased progress, 1 when still
+
+    /** Puts the player on (r, c) with no slide. */
+    void jump(int r, int c) {
+        fromR = toR = r;
+        fromC = toC = c;
+        t = 1;
+    }
+
+    /** Slides to (r, c) from wherever the player is drawn now; returns false if nothing moved. */
+    boolean moveTo(int r, int c) {
+        if (r == toR && c == toC) return false;
+        if (Math.abs(r - toR) + Math.abs(c - toC) > 1) {
+            jump(r, c);
+            return true;
+        }
+        fromR = row();
+        fromC = col();
+        toR = r;
+        toC = c;
+        start = 0;
+        t = 0;
+        return true;
+    }
+
+    boolean isMoving() {
+        return t < 1;
+    }
+
+    /** Advances the slide to {@code now}. */
+    void step(long now) {
+        if (t >= 1) return;
+        if (start == 0) start = now;
+        double x = Math.min(1, (now - start) / (double) MOVE_NANOS);
+        t = x * (2 - x); // ease out
+        if (x >= 1) t = 1;
+    }
+
+    double row() { return fromR + (toR - fromR) * t; }
+    double col() { return fromC + (toC - fromC) * t; }
+    int targetRow() { return toR; }
+    int targetCol() { return toC; }
+}
@@ -0,0 +1,45 @@
+package game;
+
+/**
+ * The original lighting: one rounded floating-point line per target tile.
+ * Costs O(R^3) per lamp and leaks or clips light asymmetrically at corners;
+ * kept for comparison with {@link ShadowcastFov}.
+ */
+final class RayMarchFov implements FieldOfView {
+
+    @Override
+    public void compute(Grid grid, int lr, int lc, int radius, TileSink sink) {
+        for (int r = lr - radius; r <= lr + radius; r++) {
+            for (int c = lc - radius; c <= lc + radius; c++) {
+                if (r < 0 || r >= grid.rows() || c < 0 || c >= grid.cols()) continue;
+
+                int dr = r - lr;
+                int dc = c - lc;
+
+                // circle radius check
+                if (dr * dr + dc * dc > radius * radius) continue;
+
+                // walls/locked doors block light (line-of-sight)
+                if (blockedByWall(grid, lr, lc, r, c)) continue;
+
+                sink.lit(r, c);
+            }
+        }
+    }
+
+    // Returns true if the straight line from (r0,c0) to (r1,c1) passes through a wall/locked door.
+    static boolean blockedByWall(Grid grid, int r0, int c0, int r1, int c1) {
+        int steps = Math.max(Math.abs(r1 - r0), Math.abs(c1 - c0));
+        if (steps == 0) return false;
+
+        for (int i = 1; i <= steps; i++) {
+            double t = i / (double) steps;
+            int r = (int) Math.round(r0 + (r1 - r0) * t);
+            int c = (int) Math.round(c0 + (c1 - c0) * t);
+
+            // if we hit a light-blocking tile, the light is blocked
+            if (grid.blocks(r, c)) return true;
+        }
+        return false;
+    }
+}
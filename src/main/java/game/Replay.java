@@ -0,0 +1,112 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Re-runs an {@link ActionLog} against a level on a headless {@link GameEngine}.
+ *
+ * Every entry must produce the same action and move count it was recorded
+ * with, and the run must end with the claimed move count and escape result.
+ * Nothing is rendered and no listener is attached, so a replay costs the
+ * engine's own work per click.
+ */
+final class Replay {
+
+    /** {@code divergedAt} is the first entry that did not reproduce, or -1 if the whole log did. */
+    record Result(boolean ok, int moves, boolean escaped, int divergedAt) {}
+
+    private Replay() {}
+
+    static Result run(Level level, ActionLog log) {
+        GameEngine engine = new GameEngine(level);
+        int cols = level.cols(), cells = level.rows() * cols;
+        for (int i = 0; i < log.size(); i++) {
+            GameAction action;
+            if (log.action(i) == GameAction.UNDO) {
+                action = engine.undo();
+            } else if (log.action(i) == GameAction.REDO) {
+                action = engine.redo();
+            } else {
+                int cell = log.cell(i);
+                if (cell < 0 || cell >= cells) return failed(engine, i);
+                action = engine.click(cell / cols, cell % cols);
+            }
+            if (action != log.action(i) || engine.moveCount() != log.moveCount(i)) return failed(engine, i);
+        }
+        boolean ok = engine.moveCount() == log.finalMoves() && engine.isEscaped() == log.escaped();
+        return new Result(ok, engine.moveCount(), engine.isEscaped(), ok ? -1 : log.size());
+    }
+
+    private static Result failed(GameEngine engine, int entry) {
+        return new Result(false, engine.moveCount(), engine.isEscaped(), entry);
+    }
+
+    /**
+     * Verifies logs in bulk: {@code Replay levels.lvl|lvp|builtin log.egr|dir ...}.
+     * Each log is matched to its level by name and fingerprint; logs are
+     * replayed in parallel and only failures are printed.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: Replay levels-file log-or-dir...");
+            return;
+        }
+        Map<String, Level> byName = new HashMap<>();
+        Map<String, Long> fingerprints = new HashMap<>();
+        LevelSource source = args[0].equals("builtin") ? Levels.builtIn() : Levels.open(Path.of(args[0]));
+        for (int i = 0; i < source.size(); i++) {
+            Level level = source.level(i);
+            byName.put(level.name(), level);
+            fingerprints.put(level.name(), ActionLog.fingerprint(level));
+        }
+        if (source instanceof AutoCloseable closeable) {
+            try { closeable.close(); } catch (Exception ignored) { }
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            Path p = Path.of(args[i]);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> list = Files.list(p)) {
+                    list.filter(f -> f.toString().endsWith(".egr")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(p);
+            }
+        }
+
+        long t0 = System.nanoTime();
+        long failures = files.parallelStream().filter(f -> !verify(f, byName, fingerprints)).count();
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("%d logs, %d failed (%.0f logs/s)%n", files.size(), failures, files.size() / secs);
+    }
+
+    private static boolean verify(Path file, Map<String, Level> byName, Map<String, Long> fingerprints) {
+        ActionLog log;
+        try {
+            log = ActionLog.read(file);
+        } catch (IOException e) {
+            System.out.println(file + ": " + e.getMessage());
+            return false;
+        }
+        Level level = byName.get(log.levelName());
+        if (level == null || fingerprints.get(log.levelName()) != log.fingerprint()) {
+            System.out.println(file + ": level '" + log.levelName() + "' not found or changed");
+            return false;
+        }
+        Result res = run(level, log);
+        if (!res.ok()) {
+            System.out.println(file + ": diverged at entry " + res.divergedAt() + " (claimed "
+                    + log.finalMoves() + (log.escaped() ? " escaped" : "") + ", got " + res.moves()
+                    + (res.escaped() ? " escaped" : "") + ")");
+        }
+        return res.ok();
+    }
+}
@@ -0,0 +1,138 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Hosts many games in one JVM, for bots or web clients.
+ *
+ * Each level gets one {@link LevelTemplate}, built when its first session
+ * opens and shared by every later one. A session is a {@link GameEngine}
+ * on that template: it reads the template's board until its first lamp or
+ * switch and then keeps a copy of only the changing layers (lit, blockers,
+ * lamp and door bits), with light areas from the template's cache. An idle
+ * session costs a few hundred bytes.
+ *
+ * Sessions live in a concurrent map and each call locks only its own
+ * session, so threads driving different sessions never wait for each other.
+ *
+ * <pre>
+ * SessionManager levels-file|builtin level-id [sessions] [clicks]
+ * </pre>
+ * opens that many sessions on one level, plays random clicks on random
+ * sessions on every core and prints the heap used per session and the
+ * clicks per second.
+ */
+final class SessionManager {
+
+    private final Map<String, Level> levels;  // by name and by index; read-only after construction
+    private final Map<Level, LevelTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<Long, GameEngine> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    SessionManager(LevelSource source) {
+        Map<String, Level> byId = new HashMap<>();
+        // a pack decodes a new Level per call, and templates are keyed by instance: fetch each once
+        Level[] all = new Level[source.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = source.level(i);
+            byId.put(all[i].name(), all[i]);
+        }
+        for (int i = 0; i < all.length; i++) byId.putIfAbsent(Integer.toString(i), all[i]);
+        this.levels = byId;
+    }
+
+    /** Starts a session on the level with that name or 0-based index and returns its id. */
+    long open(String levelId) {
+        Level level = levels.get(levelId);
+        if (level == null) throw new IllegalArgumentException("unknown level " + levelId);
+        GameEngine engine = new GameEngine(templates.computeIfAbsent(level, LevelTemplate::new));
+        long id = nextId.getAndIncrement();
+        sessions.put(id, engine);
+        return id;
+    }
+
+    /** Ends a session; false if there was none with that id. */
+    boolean close(long id) {
+        return sessions.remove(id) != null;
+    }
+
+    /**
+     * Runs {@code action} on the session's engine while holding that
+     * session's lock, so calls on one session never overlap. The engine
+     * must not be kept past the call.
+     */
+    <T> T withSession(long id, Function<? super GameEngine, T> action) {
+        GameEngine engine = sessions.get(id);
+        if (engine == null) throw new IllegalArgumentException("no session " + id);
+        synchronized (engine) {
+            return action.apply(engine);
+        }
+    }
+
+    GameAction click(long id, int r, int c) {
+        return withSession(id, e -> e.click(r, c));
+    }
+
+    GameAction undo(long id) {
+        return withSession(id, GameEngine::undo);
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    int templateCount() {
+        return templates.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: SessionManager levels-file|builtin level-id [sessions] [clicks]");
+            return;
+        }
+        LevelSource source = args[0].equals("builtin") ? Levels.builtIn() : Levels.open(Path.of(args[0]));
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int clicks = args.length > 3 ? Integer.parseInt(args[3]) : 10 * count;
+
+        SessionManager manager = new SessionManager(source);
+        manager.open(args[1]); // builds the template outside the measurement
+        long base = usedHeap();
+        long first = manager.nextId.get();
+        for (int i = 0; i < count; i++) manager.open(args[1]);
+        long idle = usedHeap() - base;
+
+        // Clicks around the player of random sessions, from every core at once
+        long t0 = System.nanoTime();
+        IntStream.range(0, clicks).parallel().forEach(n -> {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            long id = first + rnd.nextInt(count);
+            int dr = rnd.nextInt(3) - 1, dc = rnd.nextInt(3) - 1;
+            manager.withSession(id, e -> {
+                int r = e.playerRow() + dr, c = e.playerCol() + dc;
+                return e.inBounds(r, c) ? e.click(r, c) : GameAction.NONE;
+            });
+        });
+        double secs = (System.nanoTime() - t0) / 1e9;
+        long played = usedHeap() - base;
+
+        long escaped = manager.sessions.values().stream().filter(GameEngine::isEscaped).count();
+        System.out.printf("%d sessions on %s: %d bytes each idle, %d after %d clicks (%d escaped)%n",
+                count, args[1], idle / count, played / count, clicks, escaped);
+        System.out.printf("%.0f clicks/s on %d threads%n",
+                clicks / secs, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,75 @@
+package game;
+
+/**
+ * Symmetric recursive shadowcasting with integer arithmetic only.
+ *
+ * Each of the four quadrants is scanned row by row outwards from the lamp,
+ * narrowing a pair of slopes at every wall; slopes are kept as integer
+ * fractions and compared by cross-multiplication. A tile is lit only if its
+ * centre lies inside the visible wedge, which makes light symmetric: if A
+ * lights B, a lamp at B lights A. Every tile in range is visited about once,
+ * so a lamp costs O(R^2).
+ */
+final class ShadowcastFov implements FieldOfView {
+
+    @Override
+    public void compute(Grid grid, int lr, int lc, int radius, TileSink sink) {
+        sink.lit(lr, lc);
+        for (int q = 0; q < 4; q++) {
+            scan(grid, lr, lc, radius, q, 1, -1, 1, 1, 1, sink);
+        }
+    }
+
+    /**
+     * Scans row {@code depth} of quadrant {@code q} between slopes sn/sd and en/ed
+     * (column offset over depth, measured at tile edges).
+     */
+    private static void scan(Grid grid, int lr, int lc, int radius, int q, int depth,
+                             int sn, int sd, int en, int ed, TileSink sink) {
+        if (depth > radius) return;
+
+        // first and last column whose centre is inside the wedge (ties rounded inwards)
+        int minCol = Math.floorDiv(2 * depth * sn + sd, 2 * sd);
+        int maxCol = -Math.floorDiv(ed - 2 * depth * en, 2 * ed);
+        int r2 = radius * radius;
+
+        int prev = -1; // -1 none yet, 0 open, 1 blocking
+        for (int col = minCol; col <= maxCol; col++) {
+            int r = row(q, lr, depth, col);
+            int c = column(q, lc, depth, col);
+            boolean inside = r >= 0 && r < grid.rows() && c >= 0 && c < grid.cols();
+            boolean wall = !inside || grid.blocks(r, c);
+
+            if (!wall && depth * depth + col * col <= r2
+                    && (long) col * sd >= (long) depth * sn && (long) col * ed <= (long) depth * en) {
+                sink.lit(r, c);
+            }
+            if (prev == 1 && !wall) {          // leaving a wall: the wedge starts at this tile's edge
+                sn = 2 * col - 1;
+                sd = 2 * depth;
+            }
+            if (prev == 0 && wall) {           // entering a wall: scan what is visible before it
+                scan(grid, lr, lc, radius, q, depth + 1, sn, sd, 2 * col - 1, 2 * depth, sink);
+            }
+            prev = wall ? 1 : 0;
+        }
+        if (prev == 0) scan(grid, lr, lc, radius, q, depth + 1, sn, sd, en, ed, sink);
+    }
+
+    // quadrants: 0 north, 1 south, 2 east, 3 west
+    private static int row(int q, int lr, int depth, int col) {
+        switch (q) {
+            case 0: return lr - depth;
+            case 1: return lr + depth;
+            default: return lr + col;
+        }
+    }
+
+    private static int column(int q, int lc, int depth, int col) {
+        switch (q) {
+            case 2: return lc + depth;
+            case 3: return lc - depth;
+            default: return lc + col;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Lighting for a session engine on a {@link LevelTemplate}: {@code lit} is
+ * kept as the union of the ON lamps' areas, which come from the template's
+ * shared cache, so a session carries no per-tile buffers of its own.
+ *
+ * Turning a lamp on ORs its area in. Turning one off, or flipping doors,
+ * recomputes only the bitboard words the affected lamps' boxes cover, from
+ * every ON lamp's area. Light is plain white.
+ */
+final class SharedLighting implements Lighting {
+
+    private static final int[] NO_CELLS = new int[0];
+
+    private final LevelTemplate template;
+    private final Board board;
+
+    // scratch, allocated on first use
+    private int[] changed = NO_CELLS;  // tiles whose lit state flipped in the last call
+    private int changedCount;
+    private int[] region = NO_CELLS;   // lit words being recomputed, ascending
+    private long[] fresh = new long[0];
+
+    SharedLighting(LevelTemplate template, Board board) {
+        this.template = template;
+        this.board = board;
+    }
+
+    @Override
+    public void rebuild() {
+        changedCount = 0;
+        board.clearLit();
+        int[] lamps = board.lampCells();
+        for (int k = 0; k < lamps.length; k++) {
+            if (!board.isLampOn(lamps[k])) continue;
+            LevelTemplate.LampArea area = template.area(k, board);
+            for (int j = 0; j < area.words().length; j++) board.lit[area.words()[j]] |= area.bits()[j];
+        }
+    }
+
+    @Override
+    public void lampOn(int r, int c) {
+        changedCount = 0;
+        LevelTemplate.LampArea area = template.area(board.lampIndex(r * board.cols + c), board);
+        for (int j = 0; j < area.words().length; j++) {
+            int w = area.words()[j];
+            long added = area.bits()[j] & ~board.lit[w];
+            board.lit[w] |= added;
+            record(w, added);
+        }
+    }
+
+    @Override
+    public void lampOff(int r, int c) {
+        changedCount = 0;
+        // the lamp is OFF already, so relighting its own words leaves only the other lamps' light
+        LevelTemplate.LampArea area = template.area(board.lampIndex(r * board.cols + c), board);
+        int n = 0;
+        for (int w : area.words()) n = addWord(n, w);
+        relight(n);
+    }
+
+    /** Only ON lamps with one of those doors in their light box are relit. */
+    @Override
+    public void doorsToggled(int[] doorCells, int count) {
+        changedCount = 0;
+        int cols = board.cols, n = 0;
+        int[] lamps = board.lampCells();
+        for (int k = 0; k < lamps.length; k++) {
+            if (!board.isLampOn(lamps[k])) continue;
+            int lr = lamps[k] / cols, lc = lamps[k] % cols, radius = board.lampRadius(k);
+            boolean near = false;
+            for (int i = 0; i < count && !near; i++) {
+                near = Math.abs(doorCells[i] / cols - lr) <= radius && Math.abs(doorCells[i] % cols - lc) <= radius;
+            }
+            if (!near) continue;
+            // the area before and after the flip both lie in the lamp's box
+            int c0 = Math.max(0, lc - radius), c1 = Math.min(cols - 1, lc + radius);
+            for (int r = Math.max(0, lr - radius); r <= Math.min(board.rows - 1, lr + radius); r++) {
+                for (int w = (r * cols + c0) >>> 6; w <= (r * cols + c1) >>> 6; w++) n = addWord(n, w);
+            }
+        }
+        if (n == 0) return;
+        Arrays.sort(region, 0, n);
+        int unique = 0;
+        for (int j = 0; j < n; j++) {
+            if (unique == 0 || region[unique - 1] != region[j]) region[unique++] = region[j];
+        }
+        relight(unique);
+    }
+
+    @Override public int[] changedTiles() { return changed; }
+    @Override public int changedCount() { return changedCount; }
+
+    @Override
+    public int tint(int i) {
+        return BoardModel.FULL_LIGHT;
+    }
+
+    // Recomputes lit words region[0..n) (ascending, distinct) as the union of the ON lamps' areas.
+    private void relight(int n) {
+        if (fresh.length < n) fresh = new long[Math.max(n, 2 * fresh.length)];
+        Arrays.fill(fresh, 0, n, 0L);
+        int[] lamps = board.lampCells();
+        for (int k = 0; k < lamps.length; k++) {
+            if (!board.isLampOn(lamps[k])) continue;
+            LevelTemplate.LampArea area = template.area(k, board);
+            int[] words = area.words();
+            // areas and the region are both ascending; skip lamps entirely outside it
+            if (words.length == 0 || words[words.length - 1] < region[0] || words[0] > region[n - 1]) continue;
+            for (int j = 0; j < words.length; j++) {
+                int at = Arrays.binarySearch(region, 0, n, words[j]);
+                if (at >= 0) fresh[at] |= area.bits()[j];
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            int w = region[j];
+            record(w, board.lit[w] ^ fresh[j]);
+            board.lit[w] = fresh[j];
+        }
+    }
+
+    private int addWord(int n, int w) {
+        if (n == region.length) region = Arrays.copyOf(region, Math.max(16, n * 2));
+        region[n] = w;
+        return n + 1;
+    }
+
+    // Appends the tiles of the flipped bits in word w.
+    private void record(int w, long flipped) {
+        while (flipped != 0) {
+            if (changedCount == changed.length) changed = Arrays.copyOf(changed, Math.max(16, changedCount * 2));
+            changed[changedCount++] = (w << 6) + Long.numberOfTrailingZeros(flipped);
+            flipped &= flipped - 1;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static game.Tiles.*;
+
+/**
+ * A saved run of one level: the tiles as they stand (lamps and doors in
+ * their current state), the player, the move count and whether they escaped.
+ *
+ * {@link #capture} only copies one bit per lamp and per door, so it is cheap
+ * enough to take on the FX thread; the grid itself is packed from the
+ * immutable {@link Level} when the snapshot is written.
+ *
+ * On disk: magic "EGSV", u16 version, u16 name length, UTF-8 level name,
+ * i64 level fingerprint (see {@link ActionLog#fingerprint}), i32 level index,
+ * i32 rows, i32 cols, i32 player row, i32 player col, i32 move count,
+ * u8 escaped, then one 4-bit tile code per tile (two per byte, row-major).
+ */
+final class Snapshot {
+
+    static final int MAGIC = 0x45475356; // "EGSV"
+    static final int VERSION = 1;
+
+    final String levelName;
+    final long fingerprint;
+    final int levelIndex;
+    final int rows, cols;
+    final int playerRow, playerCol;
+    final int moveCount;
+    final boolean escaped;
+
+    private final Level level;        // captured snapshots only
+    private final long[] lampsOn;     // bit per lamp, in cell order
+    private final long[] doorsOpen;   // bit per door, in cell order
+    private byte[] grid;              // packed tile codes; built on first use when captured
+
+    private Snapshot(String levelName, long fingerprint, int levelIndex, int rows, int cols,
+                     int playerRow, int playerCol, int moveCount, boolean escaped,
+                     Level level, long[] lampsOn, long[] doorsOpen, byte[] grid) {
+        this.levelName = levelName;
+        this.fingerprint = fingerprint;
+        this.levelIndex = levelIndex;
+        this.rows = rows;
+        this.cols = cols;
+        this.playerRow = playerRow;
+        this.playerCol = playerCol;
+        this.moveCount = moveCount;
+        this.escaped = escaped;
+        this.level = level;
+        this.lampsOn = lampsOn;
+        this.doorsOpen = doorsOpen;
+        this.grid = grid;
+    }
+
+    /** Takes the engine's current state; {@code fingerprint} is its level's. */
+    static Snapshot capture(GameEngine engine, int levelIndex, long fingerprint) {
+        Board board = engine.board();
+        int[] lamps = board.lampCells(), doors = board.doorCells();
+        long[] on = new long[(lamps.length + 63) >>> 6];
+        long[] open = new long[(doors.length + 63) >>> 6];
+        for (int k = 0; k < lamps.length; k++) {
+            if (board.isLampOn(lamps[k])) on[k >>> 6] |= 1L << k;
+        }
+        for (int k = 0; k < doors.length; k++) {
+            int i = doors[k];
+            if ((board.doorsOpen[i >>> 6] & (1L << i)) != 0) open[k >>> 6] |= 1L << k;
+        }
+        Level level = engine.level();
+        return new Snapshot(level.name(), fingerprint, levelIndex, level.rows(), level.cols(),
+                engine.playerRow(), engine.playerCol(), engine.moveCount(), engine.isEscaped(),
+                level, on, open, null);
+    }
+
+    /** The saved symbol at cell {@code i} (r * cols + c). */
+    char tile(int i) {
+        byte b = grid()[i >>> 1];
+        return symbol((byte) (((i & 1) == 0) ? b >>> 4 & 0xF : b & 0xF));
+    }
+
+    private byte[] grid() {
+        if (grid != null) return grid;
+        byte[] packed = new byte[(rows * cols + 1) >>> 1];
+        int lamp = 0, door = 0, i = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++, i++) {
+                char t = level.tile(r, c);
+                // lamps and doors are met in cell order, the same order their bits are in
+                if (isLamp(t)) {
+                    t = bit(lampsOn, lamp++) ? LAMP_ON : LAMP_OFF;
+                } else if (isDoor(t)) {
+                    t = bit(doorsOpen, door++) ? DOOR_OPEN : DOOR_LOCKED;
+                }
+                packed[i >>> 1] |= (byte) (((i & 1) == 0) ? code(t) << 4 : code(t));
+            }
+        }
+        grid = packed;
+        return packed;
+    }
+
+    /**
+     * Writes the snapshot next to {@code file} and then moves it over
+     * {@code file} in one step, so a crash leaves either the old save or the new one.
+     */
+    void write(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        byte[] name = levelName.getBytes(StandardCharsets.UTF_8);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeLong(fingerprint);
+            out.writeInt(levelIndex);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(playerRow);
+            out.writeInt(playerCol);
+            out.writeInt(moveCount);
+            out.writeByte(escaped ? 1 : 0);
+            out.write(grid());
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static Snapshot read(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buf.getInt() != MAGIC) throw new IOException(file + ": not a saved game");
+            int version = buf.getShort() & 0xFFFF;
+            if (version != VERSION) throw new IOException(file + ": unsupported version " + version);
+            byte[] name = new byte[buf.getShort() & 0xFFFF];
+            buf.get(name);
+            long fingerprint = buf.getLong();
+            int levelIndex = buf.getInt();
+            int rows = buf.getInt(), cols = buf.getInt();
+            int pr = buf.getInt(), pc = buf.getInt();
+            int moveCount = buf.getInt();
+            boolean escaped = buf.get() != 0;
+            if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE
+                    || pr < 0 || pr >= rows || pc < 0 || pc >= cols || moveCount < 0 || levelIndex < 0) {
+                throw new IOException(file + ": corrupt saved game");
+            }
+            byte[] grid = new byte[(int) (((long) rows * cols + 1) >>> 1)];
+            buf.get(grid);
+            return new Snapshot(new String(name, StandardCharsets.UTF_8), fingerprint, levelIndex, rows, cols,
+                    pr, pc, moveCount, escaped, null, null, null, grid);
+        } catch (BufferUnderflowException e) {
+            throw new IOException(file + ": truncated saved game");
+        }
+    }
+
+    private static boolean bit(long[] words, int k) {
+        return (words[k >>> 6] & (1L << k)) != 0;
+    }
+}
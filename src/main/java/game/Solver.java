@@ -0,0 +1,368 @@
+package game;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static game.Tiles.*;
+
+/**
+ * Computes the par score of a level: the fewest moves that escape it.
+ *
+ * A state is (player cell, lamp on/off bitmask, one flip bit per door group)
+ * packed into one {@code long}. Lamp and switch clicks cost no move, so the search is a
+ * level-synchronous BFS by move count: each level is first closed under
+ * interactions, then expanded by one move. Both steps split the frontier
+ * across a fork-join pool and dedupe through a {@link ConcurrentLongSet}.
+ *
+ * The rules follow {@link GameEngine#click}: lamps and switches within the 8
+ * neighbours, at most {@link GameEngine#MAX_LAMPS_ON} lamps turned on,
+ * 4-neighbour moves onto lit tiles only.
+ */
+final class Solver {
+
+    /** Outcome of a search; {@code moves} is -1 when the level cannot be escaped. */
+    record Result(int moves, int states, long nanos) {
+        boolean solvable() { return moves >= 0; }
+    }
+
+    private static final int GRAIN = 512; // states per fork-join leaf
+    private static final int MAX_LAMP_GROUPS = 10; // door groups near one lamp; 2^n light masks each
+
+    private final int rows, cols, words;
+    private final int posBits, lampCount, groupCount;
+    private final long posMask, lampMask;
+
+    private final int[] lampAt;          // cell -> lamp index, -1 if not a lamp
+    private final int[][] lampGroups;    // [lamp] -> door groups within its light radius
+    private final long[][][] lampLight;  // [lamp][flip bits of lampGroups] -> tiles it lights
+    private final long[] walkable;       // tiles a move click can enter, doors aside
+    private final int[] doorGroupAt;     // cell -> door group, -1 if not a door
+    private final long[] doorsOpen;      // doors open at the start
+    private final int[] switchGroupAt;   // cell -> group a switch flips, -1 if not a switch
+    private final long[] exits;
+    private final int[][] interact;      // cell -> lamp/switch cells within the 8 neighbours
+    private final int[][] steps;         // cell -> 4-neighbour cells
+    private final long start;
+
+    Solver(Level level) {
+        rows = level.rows();
+        cols = level.cols();
+        int cells = rows * cols;
+        words = (cells + 63) >>> 6;
+
+        lampAt = new int[cells];
+        Arrays.fill(lampAt, -1);
+        long startLamps = 0;
+        int lamps = 0;
+        for (int i = 0; i < cells; i++) {
+            char t = level.tile(i / cols, i % cols);
+            if (!isLamp(t)) continue;
+            if (lamps == 62) throw new IllegalArgumentException(level.name() + ": too many lamps to solve");
+            if (t == LAMP_ON) startLamps |= 1L << lamps;
+            lampAt[i] = lamps++;
+        }
+        lampCount = lamps;
+        Board board = new Board(level);
+        groupCount = board.groupCount();
+        posBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, cells - 1));
+        if (posBits + lampCount + groupCount > 63) {
+            throw new IllegalArgumentException(level.name() + ": state does not fit in 63 bits");
+        }
+        posMask = (1L << posBits) - 1;
+        lampMask = (1L << lampCount) - 1;
+
+        walkable = new long[words];
+        exits = new long[words];
+        doorsOpen = new long[words];
+        doorGroupAt = new int[cells];
+        switchGroupAt = new int[cells];
+        Arrays.fill(doorGroupAt, -1);
+        for (int i = 0; i < cells; i++) {
+            char t = board.tile(i);
+            switchGroupAt[i] = board.switchGroup(i);
+            if (t == DOOR_OPEN) doorsOpen[i >>> 6] |= 1L << i;
+            else if (!isDoor(t) && !blocksMovement(t) && !isLamp(t) && t != SWITCH) walkable[i >>> 6] |= 1L << i;
+            if (t == EXIT) exits[i >>> 6] |= 1L << i;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            for (int d : board.groupDoors(g)) doorGroupAt[d] = g;
+        }
+
+        // Light of each lamp for every flip combination of the door groups it can see;
+        // lamps being on or off does not change it.
+        lampGroups = new int[lampCount][];
+        lampLight = new long[lampCount][][];
+        LightingEngine light = new LightingEngine(board);
+        for (int i = 0; i < cells; i++) {
+            int k = lampAt[i];
+            if (k < 0) continue;
+            int lr = i / cols, lc = i % cols;
+            int radius = board.lampRadius(board.lampIndex(i));
+            boolean[] near = new boolean[groupCount];
+            for (int g = 0; g < groupCount; g++) {
+                for (int d : board.groupDoors(g)) {
+                    if (Math.abs(d / cols - lr) <= radius && Math.abs(d % cols - lc) <= radius) {
+                        near[g] = true;
+                        break;
+                    }
+                }
+            }
+            int[] gs = new int[groupCount];
+            int n = 0;
+            for (int g = 0; g < groupCount; g++) if (near[g]) gs[n++] = g;
+            if (n > MAX_LAMP_GROUPS) throw new IllegalArgumentException(level.name() + ": too many door groups near a lamp");
+            lampGroups[k] = Arrays.copyOf(gs, n);
+
+            lampLight[k] = new long[1 << n][];
+            int flipped = 0;
+            for (int combo = 0; combo < (1 << n); combo++) {
+                for (int j = 0, diff = combo ^ flipped; j < n; j++) {
+                    if ((diff >>> j & 1) != 0) board.toggleGroup(gs[j]);
+                }
+                flipped = combo;
+                long[] area = new long[words];
+                light.lightArea(lr, lc, area);
+                lampLight[k][combo] = area;
+            }
+            for (int j = 0; j < n; j++) {
+                if ((flipped >>> j & 1) != 0) board.toggleGroup(gs[j]);
+            }
+        }
+
+        interact = new int[cells][];
+        steps = new int[cells][];
+        int[] buf = new int[9];
+        for (int i = 0; i < cells; i++) {
+            int r = i / cols, c = i % cols, n = 0;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int nr = r + dr, nc = c + dc;
+                    if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) continue;
+                    char t = level.tile(nr, nc);
+                    if (isLamp(t) || t == SWITCH) buf[n++] = nr * cols + nc;
+                }
+            }
+            interact[i] = Arrays.copyOf(buf, n);
+            n = 0;
+            if (r > 0) buf[n++] = i - cols;
+            if (r < rows - 1) buf[n++] = i + cols;
+            if (c > 0) buf[n++] = i - 1;
+            if (c < cols - 1) buf[n++] = i + 1;
+            steps[i] = Arrays.copyOf(buf, n);
+        }
+
+        start = pack(level.startRow() * cols + level.startCol(), startLamps, 0);
+    }
+
+    Result solve() {
+        return solve(true);
+    }
+
+    /** Runs the search, splitting each BFS level across the common pool when {@code parallel}. */
+    Result solve(boolean parallel) {
+        long t0 = System.nanoTime();
+        ConcurrentLongSet visited = new ConcurrentLongSet(1024);
+        visited.add(start);
+        long[] frontier = { start };
+
+        for (int depth = 0; frontier.length > 0; depth++) {
+            // Close this level under lamp and switch clicks, which cost no move.
+            LongList level = new LongList(frontier.length * 2);
+            level.addAll(frontier, frontier.length);
+            long[] fresh = frontier;
+            while (fresh.length > 0) {
+                visited.ensureCapacity((long) fresh.length * 9);
+                fresh = run(new Expand(fresh, 0, fresh.length, false, visited, null, parallel), parallel);
+                level.addAll(fresh, fresh.length);
+            }
+
+            // Then take one move from every state of the level.
+            long[] all = level.toArray();
+            AtomicBoolean escaped = new AtomicBoolean();
+            visited.ensureCapacity((long) all.length * 4);
+            frontier = run(new Expand(all, 0, all.length, true, visited, escaped, parallel), parallel);
+            if (escaped.get()) return new Result(depth + 1, visited.size(), System.nanoTime() - t0);
+        }
+        return new Result(-1, visited.size(), System.nanoTime() - t0);
+    }
+
+    // Flip bits of the lamp's nearby groups, in lampGroups order.
+    private int combo(int lamp, long phase) {
+        int[] gs = lampGroups[lamp];
+        int combo = 0;
+        for (int j = 0; j < gs.length; j++) combo |= (int) (phase >>> gs[j] & 1) << j;
+        return combo;
+    }
+
+    private boolean walkable(int cell, long phase) {
+        int w = cell >>> 6;
+        long bit = 1L << cell;
+        if ((walkable[w] & bit) != 0) return true;
+        int g = doorGroupAt[cell];
+        return g >= 0 && (((doorsOpen[w] & bit) != 0) ^ ((phase >>> g & 1) != 0));
+    }
+
+    private static long[] run(Expand task, boolean parallel) {
+        LongList out = parallel ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+        return out.toArray();
+    }
+
+    private long pack(int pos, long lamps, long phase) {
+        return pos | (lamps << posBits) | (phase << (posBits + lampCount));
+    }
+
+    private final class Expand extends RecursiveTask<LongList> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final long[] states;
+        private final int lo, hi;
+        private final boolean moves;
+        private final ConcurrentLongSet visited;
+        private final AtomicBoolean escaped;
+        private final boolean parallel;
+
+        Expand(long[] states, int lo, int hi, boolean moves, ConcurrentLongSet visited,
+               AtomicBoolean escaped, boolean parallel) {
+            this.states = states;
+            this.lo = lo;
+            this.hi = hi;
+            this.moves = moves;
+            this.visited = visited;
+            this.escaped = escaped;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected LongList compute() {
+            if (parallel && hi - lo > GRAIN) {
+                int mid = (lo + hi) >>> 1;
+                Expand left = new Expand(states, lo, mid, moves, visited, escaped, true);
+                left.fork();
+                LongList right = new Expand(states, mid, hi, moves, visited, escaped, true).compute();
+                LongList out = left.join();
+                out.addAll(right.data, right.size);
+                return out;
+            }
+            LongList out = new LongList(Math.max(16, (hi - lo) * 2));
+            long[] lit = moves ? new long[words] : null;
+            for (int i = lo; i < hi; i++) {
+                if (moves) {
+                    if (escaped.get()) break;
+                    expandMoves(states[i], lit, out);
+                } else {
+                    expandInteractions(states[i], out);
+                }
+            }
+            return out;
+        }
+
+        private void expandInteractions(long s, LongList out) {
+            int pos = (int) (s & posMask);
+            long lamps = (s >>> posBits) & lampMask;
+            long phase = s >>> (posBits + lampCount);
+
+            for (int cell : interact[pos]) {
+                int k = lampAt[cell];
+                long next;
+                if (k >= 0) {
+                    long bit = 1L << k;
+                    if ((lamps & bit) != 0) {
+                        next = pack(pos, lamps & ~bit, phase);
+                    } else if (Long.bitCount(lamps) < GameEngine.MAX_LAMPS_ON) {
+                        next = pack(pos, lamps | bit, phase);
+                    } else {
+                        continue;
+                    }
+                } else {
+                    next = pack(pos, lamps, phase ^ (1L << switchGroupAt[cell]));
+                }
+                if (visited.add(next)) out.add(next);
+            }
+        }
+
+        private void expandMoves(long s, long[] lit, LongList out) {
+            int pos = (int) (s & posMask);
+            long lamps = (s >>> posBits) & lampMask;
+            long phase = s >>> (posBits + lampCount);
+
+            Arrays.fill(lit, 0L);
+            for (long m = lamps; m != 0; m &= m - 1) {
+                int k = Long.numberOfTrailingZeros(m);
+                long[] area = lampLight[k][combo(k, phase)];
+                for (int w = 0; w < words; w++) lit[w] |= area[w];
+            }
+
+            for (int cell : steps[pos]) {
+                int w = cell >>> 6;
+                long bit = 1L << cell;
+                if ((lit[w] & bit) == 0 || !walkable(cell, phase)) continue;
+                if ((exits[w] & bit) != 0 && Long.bitCount(lamps) <= GameEngine.MAX_LAMPS_ON) {
+                    escaped.set(true);
+                    return;
+                }
+                long next = pack(cell, lamps, phase);
+                if (visited.add(next)) out.add(next);
+            }
+        }
+    }
+
+    /** Growable primitive long list used for frontiers. */
+    private static final class LongList {
+        long[] data;
+        int size;
+
+        LongList(int capacity) {
+            data = new long[capacity];
+        }
+
+        void add(long v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        void addAll(long[] src, int n) {
+            if (size + n > data.length) data = Arrays.copyOf(data, Math.max(size + n, size * 2));
+            System.arraycopy(src, 0, data, size, n);
+            size += n;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /** Prints the par score of every level in the given files (or the built-in levels). */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            printPars(Levels.builtIn());
+            return;
+        }
+        for (String arg : args) {
+            System.out.println("== " + arg);
+            LevelSource source = Levels.open(Path.of(arg));
+            try {
+                printPars(source);
+            } finally {
+                if (source instanceof AutoCloseable closeable) {
+                    try { closeable.close(); } catch (Exception ignored) { }
+                }
+            }
+        }
+    }
+
+    private static void printPars(LevelSource levels) {
+        for (int i = 0; i < levels.size(); i++) {
+            Level level = levels.level(i);
+            Result res = new Solver(level).solve();
+            System.out.printf("%s: %s (%d states, %.2f ms)%n", level.name(),
+                    res.solvable() ? "par " + res.moves() : "unsolvable",
+                    res.states(), res.nanos() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package game;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import javafx.application.Platform;
+import javafx.scene.media.AudioClip;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+/**
+ * Background music and sound effects.
+ *
+ * Everything is decoded once on the asset loader threads. Each effect owns a
+ * small fixed pool of preloaded AudioClip voices: a play starts on a free
+ * voice or steals the oldest one, and plays closer together than the effect's
+ * minimum gap are dropped. {@link #play} is FX-thread only, never blocks and
+ * allocates nothing; before loading finishes, or while sound is off, it returns
+ * right away.
+ */
+final class SoundManager {
+
+    enum Effect {
+        //   resource           volume voices  gap ms  voice ms
+        LAMP("/audio/lamp.wav",  0.7,    3,     40,    400),
+        WIN ("/audio/win.wav",   0.8,    1,    500,   3000);
+
+        final String path;
+        final double volume;
+        final int voices;          // polyphony cap
+        final long minGapNanos;    // rate limit between starts
+        final long voiceNanos;     // how long one play is assumed to hold its voice
+
+        Effect(String path, double volume, int voices, int minGapMillis, int voiceMillis) {
+            this.path = path;
+            this.volume = volume;
+            this.voices = voices;
+            this.minGapNanos = minGapMillis * 1_000_000L;
+            this.voiceNanos = voiceMillis * 1_000_000L;
+        }
+    }
+
+    private static final String MUSIC = "/audio/song1.wav";
+    private static final double MUSIC_VOLUME = 0.25;
+
+    private final AudioClip[][] voices = new AudioClip[Effect.values().length][];  // null until loaded
+    private final long[][] startedAt = new long[Effect.values().length][];
+    private final long[] lastStart = new long[Effect.values().length];
+    private MediaPlayer music;
+    private boolean enabled = true;
+
+    /** Starts decoding music and effects; completes on the FX thread once they are installed. */
+    CompletableFuture<Void> load() {
+        return Assets.submit(this::decode).thenAcceptAsync(this::install, Platform::runLater);
+    }
+
+    private record Loaded(MediaPlayer music, AudioClip[][] voices) {}
+
+    // loader thread
+    private Loaded decode() {
+        AudioClip[][] clips = new AudioClip[Effect.values().length][];
+        for (Effect e : Effect.values()) {
+            var url = SoundManager.class.getResource(e.path);
+            if (url == null) {
+                System.out.println("Missing " + e.path);
+                continue;
+            }
+            clips[e.ordinal()] = new AudioClip[e.voices];
+            for (int i = 0; i < e.voices; i++) {
+                AudioClip clip = new AudioClip(url.toExternalForm());
+                clip.setVolume(e.volume);
+                clips[e.ordinal()][i] = clip;
+            }
+        }
+
+        MediaPlayer player = null;
+        var url = SoundManager.class.getResource(MUSIC);
+        if (url == null) {
+            System.out.println("Missing " + MUSIC + " (place it under src/main/resources/audio/)");
+        } else {
+            try {
+                player = new MediaPlayer(new Media(url.toExternalForm()));
+                player.setVolume(MUSIC_VOLUME);
+            } catch (Exception ex) {
+                System.out.println("BGM failed to load: " + ex.getMessage());
+            }
+        }
+        return new Loaded(player, clips);
+    }
+
+    // FX thread
+    private void install(Loaded loaded) {
+        long now = System.nanoTime();
+        for (Effect e : Effect.values()) {
+            int k = e.ordinal();
+            voices[k] = loaded.voices()[k];
+            startedAt[k] = new long[e.voices];
+            Arrays.fill(startedAt[k], now - e.voiceNanos); // all voices free
+            lastStart[k] = now - e.minGapNanos;
+        }
+        music = loaded.music();
+        if (music == null) return;
+
+        // Loop the music
+        music.setOnEndOfMedia(() -> {
+            music.seek(Duration.ZERO);
+            music.play();
+        });
+        if (enabled) music.play();
+    }
+
+    /** Plays an effect if sound is on, it is loaded and its rate limit allows. */
+    void play(Effect e) {
+        if (!enabled) return;
+        int k = e.ordinal();
+        AudioClip[] pool = voices[k];
+        if (pool == null) return;
+
+        long now = System.nanoTime();
+        if (now - lastStart[k] < e.minGapNanos) return;
+        lastStart[k] = now;
+
+        long[] started = startedAt[k];
+        int v = 0;
+        for (int i = 1; i < started.length; i++) {
+            if (started[i] - started[v] < 0) v = i; // oldest start, free voices first
+        }
+        if (now - started[v] < e.voiceNanos) pool[v].stop(); // all busy: steal the oldest
+        pool[v].play();
+        started[v] = now;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Turns music and effects on or off; off also cuts any effect still playing. */
+    void setEnabled(boolean on) {
+        enabled = on;
+        if (music != null) {
+            if (on) music.play();
+            else music.pause();
+        }
+        if (on) return;
+        for (AudioClip[] pool : voices) {
+            if (pool == null) continue;
+            for (AudioClip clip : pool) clip.stop();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package game;
+
+/** Sprites drawn on top of a tile; the ordinal indexes sprite arrays. */
+enum Sprite {
+    LAMP_OFF("/images/lamp_off.png"),
+    LAMP_ON("/images/lamp_on.png"),
+    DOOR_CLOSED("/images/door_closed.png"),
+    DOOR_OPEN("/images/door_open.png"),
+    SWITCH("/images/switch.png"),
+    EXIT("/images/exit.png"),
+    PLAYER("/images/player.png");
+
+    final String path;
+
+    Sprite(String path) {
+        this.path = path;
+    }
+}
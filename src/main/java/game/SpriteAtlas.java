@@ -0,0 +1,51 @@
+package game;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+/**
+ * The tile sprites packed side by side into one sheet.
+ *
+ * Canvas drawing takes a sub-rectangle of {@link #sheet()}; node-based views
+ * can still use the individual images.
+ */
+final class SpriteAtlas {
+
+    private final Image sheet;
+    private final Image[] images;   // by Sprite.ordinal(), null when missing
+    private final int[] x;          // left edge of each sprite in the sheet
+    private final int[] w, h;
+
+    private SpriteAtlas(Image sheet, Image[] images, int[] x, int[] w, int[] h) {
+        this.sheet = sheet;
+        this.images = images;
+        this.x = x;
+        this.w = w;
+        this.h = h;
+    }
+
+    /** Packs the given images (by Sprite ordinal) into slots of {@code slot} pixels. */
+    static SpriteAtlas pack(Image[] images, int slot) {
+        int n = images.length;
+        int[] x = new int[n], w = new int[n], h = new int[n];
+        WritableImage sheet = new WritableImage(slot * n, slot);
+        PixelWriter pw = sheet.getPixelWriter();
+        for (int i = 0; i < n; i++) {
+            Image img = images[i];
+            x[i] = i * slot;
+            if (img == null) continue;
+            w[i] = Math.min(slot, (int) img.getWidth());
+            h[i] = Math.min(slot, (int) img.getHeight());
+            pw.setPixels(x[i], 0, w[i], h[i], img.getPixelReader(), 0, 0);
+        }
+        return new SpriteAtlas(sheet, images.clone(), x, w, h);
+    }
+
+    Image sheet() { return sheet; }
+    boolean has(Sprite s) { return images[s.ordinal()] != null; }
+    Image image(Sprite s) { return images[s.ordinal()]; }
+    int x(Sprite s) { return x[s.ordinal()]; }
+    int width(Sprite s) { return w[s.ordinal()]; }
+    int height(Sprite s) { return h[s.ordinal()]; }
+}
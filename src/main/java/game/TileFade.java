@@ -0,0 +1,94 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Per-tile light levels for fading tiles between dark and lit.
+ *
+ * Levels run from 0 (dark) to {@link TileStyle#FADE_STEPS} (lit) so
+ * renderers can pick precomputed colours. Only tiles that are still fading
+ * are visited on a step (an index list with swap-remove), so a frame costs
+ * nothing for the rest of a large map. Arrays are sized by {@link #reset};
+ * after that nothing here allocates.
+ */
+final class TileFade {
+
+    static final long FADE_NANOS = 160_000_000L;  // dark to lit
+    private static final float MAX = TileStyle.FADE_STEPS;
+
+    /** Receives tiles whose level changed during a step. */
+    interface Sink {
+        void levelChanged(int cell, int level);
+    }
+
+    private float[] level = new float[0];
+    private boolean[] lit = new boolean[0];        // target per tile
+    private int[] active = new int[0];             // tiles still fading
+    private boolean[] fading = new boolean[0];
+    private int activeCount;
+    private long lastStep;                         // 0 until the first step of a fade
+
+    /** Sizes for {@code cells} tiles, all dark and still. */
+    void reset(int cells) {
+        if (level.length != cells) {
+            level = new float[cells];
+            lit = new boolean[cells];
+            active = new int[cells];
+            fading = new boolean[cells];
+        } else {
+            Arrays.fill(level, 0);
+            Arrays.fill(lit, false);
+            Arrays.fill(fading, false);
+        }
+        activeCount = 0;
+        lastStep = 0;
+    }
+
+    /** Puts a tile straight into its lit or dark state, cancelling any fade. */
+    void set(int cell, boolean on) {
+        lit[cell] = on;
+        level[cell] = on ? MAX : 0;
+        // a fading tile stays in the list; step() drops it once it is at its target
+    }
+
+    /** Starts fading a tile towards lit or dark unless it is already there. */
+    void fadeTo(int cell, boolean on) {
+        lit[cell] = on;
+        if (level[cell] == (on ? MAX : 0) || fading[cell]) return;
+        fading[cell] = true;
+        active[activeCount++] = cell;
+    }
+
+    boolean isFading() {
+        return activeCount > 0;
+    }
+
+    /** The state a tile is at or fading towards. */
+    boolean isLit(int cell) {
+        return lit[cell];
+    }
+
+    /** Current level of a tile, 0..FADE_STEPS. */
+    int level(int cell) {
+        return (int) (level[cell] + 0.5f);
+    }
+
+    /** Advances every fading tile to {@code now}; {@code sink} may be null. */
+    void step(long now, Sink sink) {
+        if (activeCount == 0) return;
+        float delta = (lastStep == 0) ? 0 : Math.min(now - lastStep, FADE_NANOS) * MAX / FADE_NANOS;
+        lastStep = now;
+        for (int k = activeCount - 1; k >= 0; k--) {
+            int cell = active[k];
+            float from = level[cell];
+            float to = lit[cell] ? Math.min(MAX, from + delta) : Math.max(0, from - delta);
+            level[cell] = to;
+            if (sink != null && (int) (from + 0.5f) != (int) (to + 0.5f)) sink.levelChanged(cell, (int) (to + 0.5f));
+            if (to == (lit[cell] ? MAX : 0)) {
+                fading[cell] = false;
+                active[k] = active[--activeCount];
+            }
+        }
+        if (activeCount == 0) lastStep = 0;
+    }
+}
@@ -0,0 +1,102 @@
+package game;
+
+import javafx.scene.paint.Color;
+
+import static game.Tiles.*;
+
+/** How a tile looks for a given (symbol, lit) pair; shared by every board renderer. */
+final class TileStyle {
+
+    static final Color WALL_FILL = Color.rgb(75, 75, 90);
+    static final Color DARK_FILL = Color.rgb(15, 15, 20);
+    static final Color FLOOR_FILL = Color.rgb(220, 220, 235);
+    static final Color LAMP_OFF_FILL = Color.rgb(245, 215, 120);
+    static final Color LAMP_ON_FILL = Color.rgb(255, 245, 170);
+    static final Color PLAYER_FILL = Color.rgb(255, 190, 80); // used when player.png is missing
+    static final Color STROKE = Color.gray(0.25);
+    static final Color REACH_STROKE = Color.rgb(90, 200, 120); // reachable-area overlay
+
+    // Light fades step through this many colours per tile; level 0 is dark, FADE_STEPS lit.
+    static final int FADE_STEPS = 16;
+    private static final Color[][] RAMPS = new Color[8][FADE_STEPS + 1]; // by tile code
+    static {
+        for (int code = 0; code < RAMPS.length; code++) {
+            char t = Tiles.symbol(code);
+            Color dark = fill(t, false), lit = fill(t, true);
+            for (int k = 0; k <= FADE_STEPS; k++) {
+                RAMPS[code][k] = (k == 0) ? dark : (k == FADE_STEPS) ? lit : dark.interpolate(lit, k / (double) FADE_STEPS);
+            }
+        }
+    }
+
+    // Share of a tile's lit colour that shows under the dimmest light; the light's tint scales the rest.
+    static final double AMBIENT = 0.45;
+    private static final Color[][][] TINTED = new Color[8][FADE_STEPS + 1][]; // by tile code, level, tint; filled on use
+
+    private TileStyle() {}
+
+    /** Fill part-way through a light fade; precomputed, so safe to call every frame. */
+    static Color fill(char t, int level) {
+        return RAMPS[Tiles.code(t)][level];
+    }
+
+    /**
+     * Fill part-way through a light fade under light of the given tint
+     * (12-bit 0xRGB, see {@link BoardModel#lightTint}); cached, so safe to
+     * call every frame. Tiles that look the same lit and dark ignore the tint.
+     */
+    static Color fill(char t, int level, int tint) {
+        int code = Tiles.code(t);
+        if (tint == BoardModel.FULL_LIGHT || level == 0 || RAMPS[code][0].equals(RAMPS[code][FADE_STEPS])) {
+            return RAMPS[code][level];
+        }
+        Color[] byTint = TINTED[code][level];
+        if (byTint == null) byTint = TINTED[code][level] = new Color[BoardModel.FULL_LIGHT + 1];
+        Color c = byTint[tint];
+        if (c == null) {
+            Color lit = RAMPS[code][FADE_STEPS];
+            Color shaded = Color.color(lit.getRed() * shade(tint >>> 8), lit.getGreen() * shade(tint >>> 4 & 0xF),
+                    lit.getBlue() * shade(tint & 0xF));
+            c = byTint[tint] = RAMPS[code][0].interpolate(shaded, level / (double) FADE_STEPS);
+        }
+        return c;
+    }
+
+    private static double shade(int channel) {
+        return AMBIENT + (1 - AMBIENT) * channel / 15.0;
+    }
+
+    static Color fill(char t, boolean lit) {
+        // walls always visible (can be changed)
+        if (t == WALL) return WALL_FILL;
+        if (t == LAMP_OFF) return LAMP_OFF_FILL;
+        if (t == LAMP_ON) return LAMP_ON_FILL;
+
+        if (!lit) {
+            // Keep doors and switches visible even in darkness (can be changed)
+            if (isDoor(t) || t == SWITCH) return DARK_FILL;
+            // Everything else stays dark
+            return WALL_FILL;
+        }
+        if (t == EXIT) return DARK_FILL; // dark background
+        return FLOOR_FILL;
+    }
+
+    /** The icon part-way through a light fade; it switches at the half-way level. */
+    static Sprite sprite(char t, int level) {
+        return sprite(t, level * 2 >= FADE_STEPS);
+    }
+
+    /** Returns the icon drawn over the tile, or null for none. */
+    static Sprite sprite(char t, boolean lit) {
+        switch (t) {
+            case LAMP_OFF: return Sprite.LAMP_OFF;
+            case LAMP_ON: return Sprite.LAMP_ON;
+            case DOOR_LOCKED: return Sprite.DOOR_CLOSED;
+            case DOOR_OPEN: return Sprite.DOOR_OPEN;
+            case SWITCH: return Sprite.SWITCH;
+            case EXIT: return lit ? Sprite.EXIT : null;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Level symbols and the rules attached to them.
+ *
+ * # wall, . floor, @ player, L lamp(off), * lamp(on),
+ * S switch, D locked door, / open door, E exit
+ */
+final class Tiles {
+
+    static final char WALL = '#';
+    static final char FLOOR = '.';
+    static final char PLAYER = '@';
+    static final char EXIT = 'E';
+    static final char LAMP_OFF = 'L';
+    static final char LAMP_ON = '*';
+    static final char SWITCH = 'S';
+    static final char DOOR_LOCKED = 'D';
+    static final char DOOR_OPEN = '/';
+
+    // Tile codes used by the binary formats and Board; the index is the code.
+    private static final char[] SYMBOLS = { FLOOR, WALL, EXIT, LAMP_OFF, LAMP_ON, SWITCH, DOOR_LOCKED, DOOR_OPEN };
+    private static final byte[] CODES = new byte[128];
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (int i = 0; i < SYMBOLS.length; i++) CODES[SYMBOLS[i]] = (byte) i;
+    }
+
+    private Tiles() {}
+
+    /** Returns the 0..7 code of a board symbol ('@' has none). */
+    static byte code(char t) {
+        byte code = (t < 128) ? CODES[t] : -1;
+        if (code < 0) throw new IllegalArgumentException("no code for tile '" + t + "'");
+        return code;
+    }
+
+    static char symbol(int code) {
+        if (code < 0 || code >= SYMBOLS.length) throw new IllegalArgumentException("bad tile code " + code);
+        return SYMBOLS[code];
+    }
+
+    static boolean blocksMovement(char t) {
+        return t == WALL || t == DOOR_LOCKED;
+    }
+
+    static boolean blocksLight(char t) {
+        return t == WALL || t == DOOR_LOCKED;
+    }
+
+    static boolean isLamp(char t) {
+        return t == LAMP_OFF || t == LAMP_ON;
+    }
+
+    static boolean isDoor(char t) {
+        return t == DOOR_LOCKED || t == DOOR_OPEN;
+    }
+
+    static boolean isValid(char t) {
+        return t == WALL || t == FLOOR || t == PLAYER || t == EXIT || t == LAMP_OFF
+                || t == LAMP_ON || t == SWITCH || t == DOOR_LOCKED || t == DOOR_OPEN;
+    }
+}
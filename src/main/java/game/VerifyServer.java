@@ -0,0 +1,255 @@
+package game;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP endpoint that checks reported scores by replaying them.
+ *
+ * {@code POST /verify?level=<id>} with an action log (the .egr format) as the
+ * body replays it with {@link Replay#run} and answers with the verified
+ * result: {@code {"ok":true,"moves":42,"escaped":true,"divergedAt":-1}}.
+ * The level id is the level's name or its 0-based index. A log recorded
+ * against another version of the level gets 409.
+ *
+ * Levels are parsed once at startup and shared by every request, since a
+ * {@link Level} is immutable; each replay gets its own engine. Each request
+ * runs on its own virtual thread.
+ *
+ * <pre>
+ * VerifyServer serve levels-file|builtin [port]
+ * VerifyServer load host:port levels-file|builtin level-id log.egr|random [requests] [concurrency]
+ * </pre>
+ * {@code load} is the load-test client: it posts the same log (or a random
+ * run it records itself) over and over and prints throughput and latency.
+ */
+final class VerifyServer {
+
+    static final int DEFAULT_PORT = 8077;
+    private static final int MAX_LOG_BYTES = 16 << 20;
+
+    private record Entry(Level level, long fingerprint) {}
+
+    private final Map<String, Entry> levels;  // by name and by index; read-only after construction
+    private HttpServer server;
+
+    VerifyServer(LevelSource source) {
+        this.levels = index(source);
+    }
+
+    // Names first, then indices that no level is named after
+    private static Map<String, Entry> index(LevelSource source) {
+        Map<String, Entry> byId = new HashMap<>();
+        Entry[] entries = new Entry[source.size()];
+        for (int i = 0; i < entries.length; i++) {
+            Level level = source.level(i);
+            entries[i] = new Entry(level, ActionLog.fingerprint(level));
+            byId.put(level.name(), entries[i]);
+        }
+        for (int i = 0; i < entries.length; i++) byId.putIfAbsent(Integer.toString(i), entries[i]);
+        return byId;
+    }
+
+    /** Starts listening on the loopback address; port 0 picks a free one. */
+    void start(int port) throws IOException {
+        // Replies are written as headers then body; without TCP_NODELAY each one waits ~40 ms for a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.createContext("/verify", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                reply(exchange, 405, error("POST an action log to /verify?level=<id>"));
+                return;
+            }
+            String id = query(exchange.getRequestURI(), "level");
+            Entry entry = (id == null) ? null : levels.get(id);
+            if (entry == null) {
+                reply(exchange, 404, error("unknown level " + id));
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readNBytes(MAX_LOG_BYTES + 1);
+            if (body.length > MAX_LOG_BYTES) {
+                reply(exchange, 413, error("action log too large"));
+                return;
+            }
+            ActionLog log;
+            try {
+                log = ActionLog.read(body, "log");
+            } catch (IOException e) {
+                reply(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            if (!log.levelName().equals(entry.level.name()) || log.fingerprint() != entry.fingerprint) {
+                reply(exchange, 409, error("log was recorded on a different level"));
+                return;
+            }
+
+            GameEvents.Verify event = new GameEvents.Verify();
+            event.begin();
+            Replay.Result result = Replay.run(entry.level, log);
+            if (event.shouldCommit()) {
+                event.level = entry.level.name();
+                event.entries = log.size();
+                event.ok = result.ok();
+                event.commit();
+            }
+            reply(exchange, 200, "{\"ok\":" + result.ok() + ",\"moves\":" + result.moves()
+                    + ",\"escaped\":" + result.escaped() + ",\"divergedAt\":" + result.divergedAt() + "}");
+        }
+    }
+
+    private static String query(URI uri, String key) {
+        String q = uri.getRawQuery();
+        if (q == null) return null;
+        for (String pair : q.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(key)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static void reply(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("serve")) {
+            VerifyServer server = new VerifyServer(open(args[1]));
+            server.start(args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT);
+            System.out.println("Verifying on http://localhost:" + server.port() + "/verify?level=<id>");
+        } else if (args.length >= 5 && args[0].equals("load")) {
+            load(args);
+        } else {
+            System.out.println("usage: VerifyServer serve levels-file|builtin [port]");
+            System.out.println("       VerifyServer load host:port levels-file|builtin level-id log.egr|random"
+                    + " [requests] [concurrency]");
+        }
+    }
+
+    private static LevelSource open(String file) throws IOException {
+        return file.equals("builtin") ? Levels.builtIn() : Levels.open(Path.of(file));
+    }
+
+    // Posts one log `requests` times with at most `concurrency` in flight, then prints the figures
+    private static void load(String[] args) throws Exception {
+        Entry entry = index(open(args[2])).get(args[3]);
+        if (entry == null) {
+            System.out.println("Unknown level " + args[3]);
+            return;
+        }
+        byte[] log = args[4].equals("random") ? randomRun(entry.level) : Files.readAllBytes(Path.of(args[4]));
+        int requests = args.length > 5 ? Integer.parseInt(args[5]) : 20_000;
+        int concurrency = args.length > 6 ? Integer.parseInt(args[6]) : 64;
+
+        URL url = URI.create("http://" + args[1] + "/verify?level="
+                + URLEncoder.encode(args[3], StandardCharsets.UTF_8)).toURL();
+        System.setProperty("http.maxConnections", Integer.toString(concurrency)); // keep-alive pool size
+        long[] nanos = new long[requests];
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int n = i;
+                inFlight.acquire();
+                threads.submit(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        if (!post(url, log)) failed.incrementAndGet();
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        nanos[n] = System.nanoTime() - start;
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(concurrency); // every request answered
+            double secs = (System.nanoTime() - t0) / 1e9;
+            Arrays.sort(nanos);
+            System.out.printf("%d requests (%d-byte log), %d failed, %.0f verifications/s, p50 %.2f ms, p99 %.2f ms%n",
+                    requests, log.length, failed.get(), requests / secs,
+                    nanos[requests / 2] / 1e6, nanos[Math.min(requests - 1, (int) (requests * 0.99))] / 1e6);
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    private static boolean post(URL url, byte[] log) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        con.setRequestMethod("POST");
+        con.setDoOutput(true);
+        con.setFixedLengthStreamingMode(log.length);
+        try (OutputStream out = con.getOutputStream()) {
+            out.write(log);
+        }
+        int status = con.getResponseCode();
+        String body;
+        try (InputStream in = (status < 400) ? con.getInputStream() : con.getErrorStream()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8); // read to the end so the connection is reused
+        }
+        return status == 200 && body.startsWith("{\"ok\":true");
+    }
+
+    // A log of random clicks around the player, as the game would record them
+    private static byte[] randomRun(Level level) {
+        GameEngine engine = new GameEngine(level);
+        ActionLog log = new ActionLog(level);
+        Random rnd = new Random(1);
+        for (int k = 0; k < 500 && !engine.isEscaped(); k++) {
+            int r = engine.playerRow() + rnd.nextInt(3) - 1, c = engine.playerCol() + rnd.nextInt(3) - 1;
+            if (!engine.inBounds(r, c)) continue;
+            GameAction action = engine.click(r, c);
+            if (action != GameAction.NONE) log.record(r * level.cols() + c, action, engine.moveCount(), engine.isEscaped());
+        }
+        return log.toBytes();
+    }
+}
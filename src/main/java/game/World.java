@@ -0,0 +1,334 @@
+package game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static game.Tiles.*;
+
+/**
+ * A map too large to hold in memory, paged in chunk by chunk from a
+ * {@link WorldFile}.
+ *
+ * {@link #focus} keeps the chunks within {@link #PREFETCH} chunks of the
+ * player loaded: the 3x3 block around the player is read right away if it is
+ * missing, the ring beyond it on a background thread, so walking over a
+ * chunk border finds the next chunks already there. Past {@link #capacity}
+ * chunks the least recently focused one is evicted.
+ *
+ * What the player changed lives outside the chunks, so evicting a chunk
+ * loses nothing: lamps whose state differs from the file are kept as a set
+ * of cells, and each door group has a phase bit (a switch flips the phase,
+ * so doors in chunks that are not loaded need no update at all).
+ *
+ * Lighting is kept per chunk and recomputed only for chunks within light
+ * range of a change, from the lamps ON in the loaded chunks around them.
+ * Tiles outside the loaded chunks read as dark walls.
+ */
+final class World implements FieldOfView.Grid, AutoCloseable {
+
+    static final int PREFETCH = 2;   // chunk rings kept loaded around the player's chunk
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "world-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final WorldFile file;
+    private final int rows, cols, shift, side, chunkRows, chunkCols;
+    private final int capacity;
+    private final int radius;
+    private final FieldOfView fov;
+
+    private final Chunk[] slots;                        // loaded chunks by chunk index
+    private final List<Chunk> loaded = new ArrayList<>();
+    private final Set<Integer> pending = new HashSet<>(); // chunk indices being read in the background
+    private final ConcurrentLinkedQueue<Chunk> arrived = new ConcurrentLinkedQueue<>();
+    private long tick;
+    private int focusRow = -1, focusCol = -1;          // chunk the player was last in
+
+    private final Set<Long> lampFlips = new HashSet<>(); // cells whose lamp differs from the file
+    private final BitSet phases = new BitSet();          // door groups flipped an odd number of times
+    private int lampsOn;
+
+    private Chunk target;                                // chunk being relit
+    private final FieldOfView.TileSink lightTarget = this::lightTarget;
+
+    World(WorldFile file) {
+        this(file, Integer.getInteger("world.chunks", 64), FieldOfView.standard(), LightingEngine.RADIUS);
+    }
+
+    World(WorldFile file, int capacity, FieldOfView fov, int radius) {
+        if (radius > (1 << file.shift)) throw new IllegalArgumentException("light radius larger than a chunk");
+        this.file = file;
+        this.rows = file.rows;
+        this.cols = file.cols;
+        this.shift = file.shift;
+        this.side = file.side;
+        this.chunkRows = file.chunkRows;
+        this.chunkCols = file.chunkCols;
+        this.capacity = Math.max(capacity, (2 * PREFETCH + 1) * (2 * PREFETCH + 1));
+        this.fov = fov;
+        this.radius = radius;
+        this.slots = new Chunk[chunkRows * chunkCols];
+        this.lampsOn = file.lampsOn;
+    }
+
+    String name() { return file.name; }
+    int startRow() { return file.startRow; }
+    int startCol() { return file.startCol; }
+    int capacity() { return capacity; }
+    int loadedChunks() { return loaded.size(); }
+
+    @Override public int rows() { return rows; }
+    @Override public int cols() { return cols; }
+
+    /** Drops every change and every loaded chunk; the next {@link #focus} reads them again. */
+    void reset() {
+        for (Chunk c : loaded) slots[c.cr * chunkCols + c.cc] = null;
+        loaded.clear();
+        arrived.clear();
+        pending.clear();
+        lampFlips.clear();
+        phases.clear();
+        lampsOn = file.lampsOn;
+        focusRow = focusCol = -1;
+    }
+
+    /**
+     * Call whenever the player may have moved: installs chunks that finished
+     * loading, reads the 3x3 around the player if any are missing, starts
+     * background reads for the rest of the prefetch window and evicts.
+     */
+    void focus(int r, int c) {
+        for (Chunk chunk; (chunk = arrived.poll()) != null; ) {
+            pending.remove(chunk.cr * chunkCols + chunk.cc);
+            if (slots[chunk.cr * chunkCols + chunk.cc] == null) install(chunk, true);
+        }
+        int fr = r >> shift, fc = c >> shift;
+        tick++;
+        for (int cr = Math.max(0, fr - PREFETCH); cr <= Math.min(chunkRows - 1, fr + PREFETCH); cr++) {
+            for (int cc = Math.max(0, fc - PREFETCH); cc <= Math.min(chunkCols - 1, fc + PREFETCH); cc++) {
+                int k = cr * chunkCols + cc;
+                Chunk chunk = slots[k];
+                if (chunk == null && Math.abs(cr - fr) <= 1 && Math.abs(cc - fc) <= 1) {
+                    chunk = install(readNow(cr, cc), false);
+                }
+                if (chunk != null) {
+                    chunk.lastUsed = tick;
+                } else if (pending.add(k)) {
+                    int chunkRow = cr, chunkCol = cc;
+                    LOADER.execute(() -> readLater(chunkRow, chunkCol));
+                }
+            }
+        }
+        focusRow = fr;
+        focusCol = fc;
+        evict();
+    }
+
+    private Chunk readNow(int cr, int cc) {
+        try {
+            return file.read(cr, cc);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // loader thread
+    private void readLater(int cr, int cc) {
+        try {
+            arrived.add(file.read(cr, cc));
+        } catch (IOException e) {
+            System.out.println("Could not read chunk " + cr + "," + cc + ": " + e.getMessage());
+        }
+    }
+
+    private Chunk install(Chunk chunk, boolean prefetched) {
+        GameEvents.ChunkLoad event = new GameEvents.ChunkLoad();
+        event.begin();
+        chunk.sync(lampFlips, phases, cols);
+        chunk.lastUsed = tick;
+        slots[chunk.cr * chunkCols + chunk.cc] = chunk;
+        loaded.add(chunk);
+        // its lamps may light the neighbours, and theirs may light it
+        for (int cr = chunk.cr - 1; cr <= chunk.cr + 1; cr++) {
+            for (int cc = chunk.cc - 1; cc <= chunk.cc + 1; cc++) {
+                Chunk n = chunkAt(cr, cc);
+                if (n != null) relight(n);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.chunkRow = chunk.cr;
+            event.chunkCol = chunk.cc;
+            event.prefetched = prefetched;
+            event.loadedChunks = loaded.size();
+            event.commit();
+        }
+        return chunk;
+    }
+
+    // Evicts the least recently focused chunks outside the prefetch window.
+    private void evict() {
+        while (loaded.size() > capacity) {
+            int oldest = -1;
+            for (int k = 0; k < loaded.size(); k++) {
+                Chunk c = loaded.get(k);
+                if (Math.abs(c.cr - focusRow) <= PREFETCH && Math.abs(c.cc - focusCol) <= PREFETCH) continue;
+                if (oldest < 0 || c.lastUsed < loaded.get(oldest).lastUsed) oldest = k;
+            }
+            if (oldest < 0) return;
+            Chunk c = loaded.get(oldest);
+            loaded.set(oldest, loaded.get(loaded.size() - 1));
+            loaded.remove(loaded.size() - 1);
+            slots[c.cr * chunkCols + c.cc] = null;
+        }
+    }
+
+    private Chunk chunkAt(int cr, int cc) {
+        if (cr < 0 || cr >= chunkRows || cc < 0 || cc >= chunkCols) return null;
+        return slots[cr * chunkCols + cc];
+    }
+
+    // Loaded chunk holding tile (r, c), or null.
+    private Chunk chunkOf(int r, int c) {
+        if (r < 0 || r >= rows || c < 0 || c >= cols) return null;
+        return slots[(r >> shift) * chunkCols + (c >> shift)];
+    }
+
+    private int local(int r, int c) {
+        return ((r & (side - 1)) << shift) | (c & (side - 1));
+    }
+
+    boolean isLoaded(int r, int c) {
+        return chunkOf(r, c) != null;
+    }
+
+    char tile(int r, int c) {
+        Chunk chunk = chunkOf(r, c);
+        return (chunk == null) ? WALL : chunk.tile(local(r, c));
+    }
+
+    boolean isLit(int r, int c) {
+        Chunk chunk = chunkOf(r, c);
+        return chunk != null && chunk.isLit(local(r, c));
+    }
+
+    @Override
+    public boolean blocks(int r, int c) {
+        Chunk chunk = chunkOf(r, c);
+        return chunk == null || chunk.blocks(local(r, c));
+    }
+
+    /** Lamps ON anywhere in the world, loaded or not. */
+    int countLampsOn() {
+        return lampsOn;
+    }
+
+    /** Lit tiles in the loaded chunks. */
+    int countLit() {
+        int n = 0;
+        for (Chunk c : loaded) n += c.countLit();
+        return n;
+    }
+
+    boolean isLampOn(int r, int c) {
+        Chunk chunk = chunkOf(r, c);
+        return chunk != null && chunk.isLampOn(local(r, c));
+    }
+
+    /** Switches the lamp at (r, c), which must be loaded, and relights around it. */
+    void setLampOn(int r, int c, boolean on) {
+        Chunk chunk = chunkOf(r, c);
+        int i = local(r, c);
+        if (chunk.isLampOn(i) == on) return;
+        chunk.setLampOn(i, on);
+        long cell = (long) r * cols + c;
+        if (!lampFlips.remove(cell)) lampFlips.add(cell);
+        lampsOn += on ? 1 : -1;
+        relightAround(r, c);
+    }
+
+    /** Group id of the switch at (r, c), or -1 if there is no loaded switch there. */
+    int switchGroup(int r, int c) {
+        Chunk chunk = chunkOf(r, c);
+        return (chunk == null) ? -1 : chunk.switchGroup(local(r, c));
+    }
+
+    /**
+     * Flips every door of group {@code g}: the phase bit for the whole world,
+     * the door bits in loaded chunks. Returns the doors flipped in loaded chunks.
+     */
+    int toggleGroup(int g) {
+        phases.flip(g);
+        int flipped = 0;
+        List<Chunk> touched = new ArrayList<>();
+        for (Chunk c : loaded) {
+            int n = c.toggleGroup(g);
+            if (n == 0) continue;
+            flipped += n;
+            touched.add(c);
+        }
+        // a door changes light up to one chunk away; relight each affected chunk once
+        Set<Chunk> dirty = new HashSet<>();
+        for (Chunk c : touched) {
+            for (int cr = c.cr - 1; cr <= c.cr + 1; cr++) {
+                for (int cc = c.cc - 1; cc <= c.cc + 1; cc++) {
+                    Chunk n = chunkAt(cr, cc);
+                    if (n != null) dirty.add(n);
+                }
+            }
+        }
+        for (Chunk c : dirty) relight(c);
+        return flipped;
+    }
+
+    // Relights the loaded chunks within light range of (r, c).
+    private void relightAround(int r, int c) {
+        int cr0 = Math.max(0, (r - radius) >> shift), cr1 = Math.min(chunkRows - 1, (r + radius) >> shift);
+        int cc0 = Math.max(0, (c - radius) >> shift), cc1 = Math.min(chunkCols - 1, (c + radius) >> shift);
+        for (int cr = cr0; cr <= cr1; cr++) {
+            for (int cc = cc0; cc <= cc1; cc++) {
+                Chunk n = chunkAt(cr, cc);
+                if (n != null) relight(n);
+            }
+        }
+    }
+
+    // Recomputes one chunk's light from the lamps ON in it and its loaded neighbours.
+    private void relight(Chunk chunk) {
+        chunk.clearLit();
+        target = chunk;
+        for (int cr = chunk.cr - 1; cr <= chunk.cr + 1; cr++) {
+            for (int cc = chunk.cc - 1; cc <= chunk.cc + 1; cc++) {
+                Chunk n = chunkAt(cr, cc);
+                if (n == null || !n.hasLampOn()) continue;
+                for (int i : n.lamps) {
+                    if (!n.isLampOn(i)) continue;
+                    int lr = n.r0 + i / side, lc = n.c0 + i % side;
+                    if (lr + radius < chunk.r0 || lr - radius >= chunk.r0 + side
+                            || lc + radius < chunk.c0 || lc - radius >= chunk.c0 + side) continue;
+                    fov.compute(this, lr, lc, radius, lightTarget);
+                }
+            }
+        }
+        target = null;
+    }
+
+    private void lightTarget(int r, int c) {
+        Chunk t = target;
+        if (r >= t.r0 && r < t.r0 + side && c >= t.c0 && c < t.c0 + side) t.setLit(local(r, c));
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,123 @@
+package game;
+
+import static game.Tiles.*;
+
+/**
+ * The game rules on a streamed {@link World}: same lamps, switches, lit-only
+ * movement and exit as {@link GameEngine}, with the world refocused on the
+ * player after every action so chunks page in ahead of them.
+ *
+ * There is no undo here: a world's history would outgrow the flat memory
+ * the world mode is for.
+ */
+final class WorldEngine implements Game {
+
+    private final World world;
+    private GameListener listener = GameListener.NONE;
+    private int pr, pc;
+    private int moveCount;
+    private boolean escaped;
+
+    WorldEngine(World world) {
+        this.world = world;
+        reset();
+    }
+
+    World world() { return world; }
+
+    @Override
+    public void setListener(GameListener listener) {
+        this.listener = (listener == null) ? GameListener.NONE : listener;
+    }
+
+    @Override
+    public void reset() {
+        world.reset();
+        pr = world.startRow();
+        pc = world.startCol();
+        moveCount = 0;
+        escaped = false;
+        world.focus(pr, pc);
+    }
+
+    @Override public String name() { return world.name(); }
+    @Override public int rows() { return world.rows(); }
+    @Override public int cols() { return world.cols(); }
+    @Override public char tile(int r, int c) { return world.tile(r, c); }
+    @Override public boolean isLit(int r, int c) { return world.isLit(r, c); }
+    @Override public int playerRow() { return pr; }
+    @Override public int playerCol() { return pc; }
+    @Override public int moveCount() { return moveCount; }
+    @Override public boolean isEscaped() { return escaped; }
+    @Override public int countLit() { return world.countLit(); }
+
+    @Override
+    public GameAction click(int r, int c) {
+        GameAction action = interact(r, c);
+        // A lamp or switch is only ever toggled, even when the toggle was refused
+        if (action != GameAction.NONE || isInteractable(r, c)) return action;
+        return move(r, c);
+    }
+
+    private boolean isInteractable(int r, int c) {
+        char t = world.tile(r, c); // WALL where not loaded
+        return isLamp(t) || t == SWITCH;
+    }
+
+    @Override
+    public GameAction interact(int r, int c) {
+        world.focus(pr, pc); // picks up chunks that finished loading
+        if (Math.abs(r - pr) > 1 || Math.abs(c - pc) > 1 || !world.isLoaded(r, c)) return GameAction.NONE;
+        char t = world.tile(r, c);
+        if (t == LAMP_OFF) {
+            if (world.countLampsOn() >= GameEngine.MAX_LAMPS_ON) {
+                listener.lampLimitReached(GameEngine.MAX_LAMPS_ON);
+                return GameAction.NONE;
+            }
+            world.setLampOn(r, c, true);
+            listener.lampToggled(r, c, true);
+            return GameAction.LAMP_ON;
+        }
+        if (t == LAMP_ON) {
+            world.setLampOn(r, c, false);
+            listener.lampToggled(r, c, false);
+            return GameAction.LAMP_OFF;
+        }
+        if (t == SWITCH) {
+            int flipped = world.toggleGroup(world.switchGroup(r, c));
+            listener.doorsToggled(flipped);
+            return GameAction.SWITCH;
+        }
+        return GameAction.NONE;
+    }
+
+    @Override
+    public GameAction move(int r, int c) {
+        if (Math.abs(r - pr) + Math.abs(c - pc) != 1 || world.blocks(r, c)) return GameAction.NONE;
+        char t = world.tile(r, c);
+        if (isLamp(t) || t == SWITCH) return GameAction.NONE; // toggled, never stood on
+        if (!world.isLit(r, c)) {
+            listener.darkTile(r, c);
+            return GameAction.NONE;
+        }
+        pr = r;
+        pc = c;
+        moveCount++;
+        world.focus(pr, pc);
+        listener.moved(pr, pc, moveCount);
+        if (t == EXIT) {
+            if (world.countLampsOn() > GameEngine.MAX_LAMPS_ON) {
+                listener.escapeBlocked(GameEngine.MAX_LAMPS_ON);
+            } else {
+                escaped = true;
+                listener.escaped(moveCount);
+            }
+        }
+        return GameAction.MOVE;
+    }
+
+    @Override public GameAction undo() { return GameAction.NONE; }
+    @Override public GameAction redo() { return GameAction.NONE; }
+    @Override public boolean canUndo() { return false; }
+    @Override public boolean canRedo() { return false; }
+}
@@ -0,0 +1,287 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static game.Tiles.*;
+
+/**
+ * A world map stored as square chunks that can be read one at a time.
+ *
+ * Layout: magic "EGWD", u16 version, u8 chunk shift (chunks are
+ * 2^shift tiles square), u8 reserved, i32 rows, i32 cols, i32 start row,
+ * i32 start col, i32 lamps ON, u16 name length, UTF-8 name, then
+ * chunkRows * chunkCols + 1 i64 offsets (row-major; the last one is the
+ * end of the file) and the chunk records. A record is the tiles as 4-bit
+ * codes, two per byte as in {@link LevelBinary}, with tiles past the map
+ * edge stored as walls; then i32 count and count pairs of
+ * (u16 local cell, u16 group) for switches and doors outside group 0.
+ *
+ * Opening a world reads the header and index only. {@link #read} does one
+ * positional read per chunk and is safe to call from several threads.
+ */
+final class WorldFile implements AutoCloseable {
+
+    static final int MAGIC = 0x45475744; // "EGWD"
+    static final int VERSION = 1;
+    static final int DEFAULT_SHIFT = 6;  // 64x64 tiles per chunk
+    private static final int LAMPS_AT = 24; // header offset of the lamps ON count
+
+    final String name;
+    final int rows, cols, startRow, startCol;
+    final int shift, side, chunkRows, chunkCols;
+    final int lampsOn;                    // lamps ON in the file
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long[] offsets;
+
+    private WorldFile(Path file, FileChannel channel, String name, int rows, int cols, int startRow, int startCol,
+                      int shift, int lampsOn, long[] offsets) {
+        this.file = file;
+        this.channel = channel;
+        this.name = name;
+        this.rows = rows;
+        this.cols = cols;
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.shift = shift;
+        this.side = 1 << shift;
+        this.chunkRows = (rows + side - 1) >> shift;
+        this.chunkCols = (cols + side - 1) >> shift;
+        this.lampsOn = lampsOn;
+        this.offsets = offsets;
+    }
+
+    static WorldFile open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer head = readFully(ch, 0, 30, file);
+            if (head.getInt(0) != MAGIC) throw new IOException(file + ": not a world file");
+            int version = head.getShort(4) & 0xFFFF;
+            if (version != VERSION) throw new IOException(file + ": unsupported version " + version);
+            int shift = head.get(6);
+            int rows = head.getInt(8), cols = head.getInt(12);
+            int sr = head.getInt(16), sc = head.getInt(20);
+            int lamps = head.getInt(LAMPS_AT);
+            int nameLength = head.getShort(28) & 0xFFFF;
+            if (shift < 3 || shift > 8 || rows <= 0 || cols <= 0) throw new IOException(file + ": bad header");
+            if (sr < 0 || sr >= rows || sc < 0 || sc >= cols) throw new IOException(file + ": player start outside the map");
+            String name = StandardCharsets.UTF_8.decode(readFully(ch, 30, nameLength, file)).toString();
+
+            long chunks = (long) ((rows + (1 << shift) - 1) >> shift) * ((cols + (1 << shift) - 1) >> shift);
+            if (8 * (chunks + 1) > ch.size()) throw new IOException(file + ": corrupt index");
+            ByteBuffer index = readFully(ch, 30 + nameLength, (int) (8 * (chunks + 1)), file);
+            long[] offsets = new long[(int) chunks + 1];
+            index.asLongBuffer().get(offsets);
+            return new WorldFile(file, ch, name, rows, cols, sr, sc, shift, lamps, offsets);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /** Reads and decodes chunk (cr, cc). */
+    Chunk read(int cr, int cc) throws IOException {
+        int k = cr * chunkCols + cc;
+        long start = offsets[k], end = offsets[k + 1];
+        if (end - start < side * side / 2 + 4 || end > channel.size()) throw new IOException(file + ": corrupt chunk " + cr + "," + cc);
+        ByteBuffer buf = readFully(channel, start, (int) (end - start), file);
+
+        byte[] codes = new byte[side * side];
+        for (int i = 0; i < codes.length; i += 2) {
+            int b = buf.get() & 0xFF;
+            codes[i] = (byte) (b & 0x0F);
+            codes[i + 1] = (byte) (b >>> 4);
+        }
+        for (byte t : codes) {
+            if (t > 7) throw new IOException(file + ": bad tile code in chunk " + cr + "," + cc);
+        }
+        int n = buf.getInt();
+        if (n < 0 || n > buf.remaining() / 4) throw new IOException(file + ": corrupt chunk " + cr + "," + cc);
+        int[] cells = new int[n], groups = new int[n];
+        for (int i = 0; i < n; i++) {
+            cells[i] = buf.getShort() & 0xFFFF;
+            groups[i] = buf.getShort() & 0xFFFF;
+        }
+        return new Chunk(cr, cc, side, codes, cells, groups);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer readFully(FileChannel ch, long position, int length, Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) throw new IOException(file + ": truncated");
+        }
+        return buf.flip();
+    }
+
+    /** Where {@link #write} takes the map from; it is asked for every tile once, chunk by chunk. */
+    interface TileSource {
+        char tile(int r, int c);
+
+        /** Group of the switch or door at (r, c); 0 unless bound. */
+        default int group(int r, int c) { return 0; }
+    }
+
+    /** Writes a world chunk by chunk, so the whole map never has to be in memory. */
+    static void write(Path file, String name, int rows, int cols, int startRow, int startCol, int shift,
+                      TileSource source) throws IOException {
+        int side = 1 << shift;
+        int chunkRows = (rows + side - 1) >> shift, chunkCols = (cols + side - 1) >> shift;
+        long[] offsets = new long[chunkRows * chunkCols + 1];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 0xFFFF) throw new IOException("world name too long");
+        int lampsOn = 0;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeByte(shift);
+            out.writeByte(0);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(startRow);
+            out.writeInt(startCol);
+            out.writeInt(0);                 // lamps ON, filled in below
+            out.writeShort(nameBytes.length);
+            out.write(nameBytes);
+            for (int i = 0; i < offsets.length; i++) out.writeLong(0);
+
+            long pos = 30 + nameBytes.length + 8L * offsets.length;
+            int[] cells = new int[side * side], groups = new int[side * side];
+            for (int cr = 0; cr < chunkRows; cr++) {
+                for (int cc = 0; cc < chunkCols; cc++) {
+                    offsets[cr * chunkCols + cc] = pos;
+                    int n = 0, pending = 0;
+                    for (int i = 0; i < side * side; i++) {
+                        int r = cr * side + i / side, c = cc * side + i % side;
+                        char t = (r < rows && c < cols) ? source.tile(r, c) : WALL;
+                        if (r == startRow && c == startCol) t = FLOOR;
+                        if (t == LAMP_ON) lampsOn++;
+                        if (t == SWITCH || isDoor(t)) {
+                            int g = source.group(r, c);
+                            if (g != 0) {
+                                cells[n] = i;
+                                groups[n++] = g;
+                            }
+                        }
+                        int code = code(t);
+                        if ((i & 1) == 0) pending = code;
+                        else out.writeByte(pending | (code << 4));
+                    }
+                    out.writeInt(n);
+                    for (int k = 0; k < n; k++) {
+                        out.writeShort(cells[k]);
+                        out.writeShort(groups[k]);
+                    }
+                    pos += side * side / 2 + 4 + 4L * n;
+                }
+            }
+            offsets[offsets.length - 1] = pos;
+        }
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer lamps = ByteBuffer.allocate(4).putInt(0, lampsOn);
+            ch.write(lamps, LAMPS_AT);
+            ByteBuffer index = ByteBuffer.allocate(8 * offsets.length);
+            for (long off : offsets) index.putLong(off);
+            index.flip();
+            ch.write(index, 30 + nameBytes.length);
+        }
+    }
+
+    /** Writes a single level as a world. */
+    static void write(Path file, Level level, int shift) throws IOException {
+        write(file, level.name(), level.rows(), level.cols(), level.startRow(), level.startCol(), shift,
+                new TileSource() {
+                    @Override public char tile(int r, int c) { return level.tile(r, c); }
+                    @Override public int group(int r, int c) { return level.group(r * level.cols() + c); }
+                });
+    }
+
+    /**
+     * Repeats a level {@code down} x {@code across} times into one large map,
+     * for trying out huge worlds. Each copy's middle row and column are opened
+     * through to its neighbours; only the first copy keeps its start and lit
+     * lamps and only the last one its exit. Door groups are numbered per copy
+     * (ids wrap past 65535).
+     */
+    static void writeRepeated(Path file, Level level, int down, int across, int shift) throws IOException {
+        int h = level.rows(), w = level.cols();
+        int groupsPerCopy = 1;
+        for (int cell : level.boundCells()) groupsPerCopy = Math.max(groupsPerCopy, level.group(cell) + 1);
+        int stride = groupsPerCopy;
+        int last = down * across - 1;
+
+        TileSource source = new TileSource() {
+            @Override
+            public char tile(int r, int c) {
+                int br = r / h, bc = c / w, lr = r % h, lc = c % w;
+                int copy = br * across + bc;
+                boolean row = lr == h / 2, col = lc == w / 2;
+                if (row && ((lc <= 1 && bc > 0) || (lc >= w - 2 && bc < across - 1))) return FLOOR;
+                if (col && ((lr <= 1 && br > 0) || (lr >= h - 2 && br < down - 1))) return FLOOR;
+                char t = level.tile(lr, lc);
+                if (t == EXIT && copy != last) return FLOOR;
+                if (t == LAMP_ON && copy != 0) return LAMP_OFF;
+                return t;
+            }
+
+            @Override
+            public int group(int r, int c) {
+                int copy = (r / h) * across + c / w;
+                int g = level.group((r % h) * w + c % w);
+                return 1 + (int) (((long) copy * stride + g) % 0xFFFF);
+            }
+        };
+        write(file, level.name() + " x" + (down * across), h * down, w * across,
+                level.startRow(), level.startCol(), shift, source);
+    }
+
+    /**
+     * World file tool.
+     * <pre>
+     *   WorldFile convert out.lvw in.lvl [shift]                  one level as a world
+     *   WorldFile repeat  out.lvw in.lvl down across [shift]      a level tiled into a large world
+     *   WorldFile info    in.lvw
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("convert")) {
+            Level level = Levels.open(Path.of(args[2])).level(0);
+            write(Path.of(args[1]), level, args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_SHIFT);
+        } else if (args.length >= 5 && args[0].equals("repeat")) {
+            Level level = args[2].equals("builtin") ? Levels.level1() : Levels.open(Path.of(args[2])).level(0);
+            int shift = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_SHIFT;
+            long t0 = System.nanoTime();
+            writeRepeated(Path.of(args[1]), level, Integer.parseInt(args[3]), Integer.parseInt(args[4]), shift);
+            System.out.printf("Wrote %s in %.1f s%n", args[1], (System.nanoTime() - t0) / 1e9);
+        } else if (args.length == 2 && args[0].equals("info")) {
+            try (WorldFile world = open(Path.of(args[1]))) {
+                System.out.println(world.name + ": " + world.rows + "x" + world.cols + " tiles, "
+                        + world.chunkRows + "x" + world.chunkCols + " chunks of " + world.side + "x" + world.side
+                        + ", start " + world.startRow + "," + world.startCol + ", " + world.lampsOn + " lamps ON");
+            }
+            return;
+        } else {
+            System.out.println("usage: WorldFile convert out.lvw in.lvl [shift] | repeat out.lvw in.lvl|builtin down across [shift] | info in.lvw");
+            return;
+        }
+        try (WorldFile world = open(Path.of(args[1]))) {
+            System.out.println(world.name + ": " + world.rows + "x" + world.cols + " tiles in "
+                    + world.chunkRows * world.chunkCols + " chunks");
+        }
+    }
+}